@@ -0,0 +1,115 @@
+package bench;
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import probMass.ConcurrentSampler;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Measure sampling throughput as threads are added. Each thread either owns a ConcurrentSampler
+ * stream or draws its uniforms from one shared java.util.Random (the way demo.Demonstrate does).
+ * Throughput is reported per thread, flat lines mean linear scaling.
+ *
+ * JMH fixes the thread count per run, so main() runs the benchmark at 1, 2, 4, ... 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ConcurrentSamplingBenchmark {
+
+	static final int BATCH_SIZE = 4096;
+
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+
+		@Param({"CHAN_ASUA", "SPOOFING"})
+		PMFKind kind;
+
+		@Param({"1000000"})
+		int n;
+
+		@Param({"100000000"})
+		long lifetime;
+
+		ConcurrentSampler sampler;
+
+		Random sharedRandom;
+
+
+		@Setup(Level.Trial)
+		public void buildPMF() {
+			ProbMassFunction pmf = kind.build(lifetime, Shape.GENTLE_CURVE.weights(n));
+			sampler = new ConcurrentSampler(pmf, 17L);
+			sharedRandom = new Random(17L);
+		}
+	}
+
+
+	@State(Scope.Thread)
+	public static class PerThread {
+
+		ConcurrentSampler.Stream stream;
+
+		int[] out = new int[BATCH_SIZE];
+
+
+		@Setup(Level.Trial)
+		public void makeStream(Shared shared) {
+			stream = shared.sampler.newStream();
+		}
+	}
+
+
+	/** Every thread has its own stream, nothing is shared but the (immutable) PMF. */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] ownStream(PerThread local) {
+		local.stream.sample(local.out, 0, BATCH_SIZE);
+		return local.out;
+	}
+
+
+	/** Every thread contends on one java.util.Random. */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] sharedRandom(Shared shared, PerThread local) {
+		int[] out = local.out;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = shared.sampler.getPMF().getSample(shared.sharedRandom.nextDouble());
+		}
+		return out;
+	}
+
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads = 1; threads <= 64; threads *= 2) {
+			Options options = new OptionsBuilder()
+					.include(ConcurrentSamplingBenchmark.class.getSimpleName())
+					.threads(threads)
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
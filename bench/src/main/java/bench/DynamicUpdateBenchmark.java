@@ -0,0 +1,116 @@
+package bench;
+
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import probMass.BinarySearchPMF;
+import probMass.ChanAsuaPMF;
+import probMass.DynamicPMF;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Measure a workload whose weights drift: each operation changes "updates" weights and then draws
+ * SamplingBenchmark.BATCH_SIZE samples. A DynamicPMF applies the changes in place, the static
+ * PMFs are rebuilt from the changed weights (the only way to update them).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class DynamicUpdateBenchmark {
+
+	@Param({"GENTLE_CURVE"})
+	Shape shape;
+
+	@Param({"1000", "100000", "10000000"})
+	int n;
+
+	@Param({"1", "100", "10000"})
+	int updates;
+
+	double[] weights;
+
+	DynamicPMF dynamic;
+
+	SplittableRandom rng;
+
+	double[] uniforms;
+
+	int[] out;
+
+
+	@Setup(Level.Trial)
+	public void buildPMF() {
+		weights = shape.weights(n);
+		dynamic = new DynamicPMF(weights);
+		rng = new SplittableRandom(17L);
+
+		uniforms = new double[SamplingBenchmark.BATCH_SIZE];
+		for (int i = 0; i < uniforms.length; i++) {
+			uniforms[i] = rng.nextDouble();
+		}
+		out = new int[SamplingBenchmark.BATCH_SIZE];
+	}
+
+
+	@Benchmark
+	public int[] dynamic() {
+		for (int i = 0; i < updates; i++) {
+			dynamic.updateWeight(rng.nextInt(n), rng.nextDouble());
+		}
+		dynamic.sample(uniforms, out);
+		return out;
+	}
+
+
+	@Benchmark
+	public int[] rebuildBinarySearch() {
+		changeWeights();
+		return drawFrom(new BinarySearchPMF(weights));
+	}
+
+
+	@Benchmark
+	public int[] rebuildChanAsua() {
+		changeWeights();
+		return drawFrom(new ChanAsuaPMF(weights));
+	}
+
+
+	/** The DynamicPMF's draws alone, to separate their cost from the updates'. */
+	@Benchmark
+	public void dynamicDrawsOnly(Blackhole blackhole) {
+		for (double u : uniforms) {
+			blackhole.consume(dynamic.getSample(u));
+		}
+	}
+
+
+	private void changeWeights() {
+		for (int i = 0; i < updates; i++) {
+			weights[rng.nextInt(n)] = rng.nextDouble();
+		}
+	}
+
+
+	private int[] drawFrom(ProbMassFunction pmf) {
+		pmf.sample(uniforms, out);
+		return out;
+	}
+}
@@ -0,0 +1,50 @@
+package bench;
+
+
+import probMass.AliasPMF;
+import probMass.BinarySearchPMF;
+import probMass.ChanAsuaPMF;
+import probMass.ProbMassFunction;
+import probMass.SpoofingPMF;
+
+
+/** Every ProbMassFunction implementation under benchmark. */
+public enum PMFKind {
+
+	BINARY_SEARCH {
+		@Override
+		ProbMassFunction build(long lifetime, double[] weights) {
+			return new BinarySearchPMF(weights);
+		}
+	},
+
+	CHAN_ASUA {
+		@Override
+		ProbMassFunction build(long lifetime, double[] weights) {
+			return new ChanAsuaPMF(weights);
+		}
+	},
+
+	ALIAS {
+		@Override
+		ProbMassFunction build(long lifetime, double[] weights) {
+			return new AliasPMF(weights);
+		}
+	},
+
+	SPOOFING {
+		@Override
+		ProbMassFunction build(long lifetime, double[] weights) {
+			return new SpoofingPMF(lifetime, weights);
+		}
+	};
+
+
+	/**
+	 * @param lifetime - The number of draws the PMF must support (only used by lossy PMFs)
+	 * @param weights - The weights to build from
+	 *
+	 * @return - A new PMF of this kind
+	 */
+	abstract ProbMassFunction build(long lifetime, double[] weights);
+}
@@ -0,0 +1,76 @@
+package bench;
+
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Report the heap each kind of PMF retains once it is built. JMH measures time and allocation
+ * rate, not retained size, so this is a plain main that measures used heap after full collections.
+ * Run with a fixed heap and the parallel collector (e.g. -Xms8g -Xmx8g -XX:+UseParallelGC), G1
+ * reports usage in whole regions and the serial collector can lag by one collection.
+ *
+ * Usage: java -cp benchmarks.jar bench.RetainedMemory [lifetime] [n ...]
+ */
+public class RetainedMemory {
+
+	/** Publishing the PMF here keeps escape analysis from eliminating it before it is measured. */
+	private static ProbMassFunction retained;
+
+
+	public static void main(String[] args) {
+
+		long lifetime = (args.length > 0) ? Long.parseLong(args[0]) : 100000000L;
+		int[] sizes = {1000, 100000, 10000000, 100000000};
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				sizes[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+
+		//the first readings include one-off startup garbage, discard them
+		for (PMFKind kind : PMFKind.values()) {
+			retainedBytes(kind, Shape.GENTLE_CURVE, lifetime, 1000);
+		}
+
+		System.out.println("kind\t\tshape\t\tn\t\tbytes\t\tbytesPerEntry");
+		for (Shape shape : Shape.values()) {
+			for (int n : sizes) {
+				for (PMFKind kind : PMFKind.values()) {
+					long bytes = retainedBytes(kind, shape, lifetime, n);
+					System.out.println(kind + "\t\t" + shape + "\t\t" + n + "\t\t" + bytes
+							+ "\t\t" + ((double) bytes / n));
+				}
+			}
+		}
+	}
+
+
+	/** @return - The growth in used heap caused by keeping one PMF alive. */
+	private static long retainedBytes(PMFKind kind, Shape shape, long lifetime, int n) {
+
+		double[] weights = shape.weights(n);
+
+		//the weights are counted in the first reading but not the second
+		long before = usedHeapAfterGC() - (8L * n);
+		retained = kind.build(lifetime, weights);
+		weights = null;
+		long after = usedHeapAfterGC();
+		retained = null;
+
+		return after - before;
+	}
+
+
+	/** @return - The heap in use after repeated full collections. */
+	private static long usedHeapAfterGC() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,90 @@
+package bench;
+
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Measure draws per second, one draw per call and in batches. The uniforms are generated up front
+ * so the RNG is not part of the measurement, and no results are collected in the timed region
+ * (unlike demo.Demonstrate, whose timings are dominated by its TreeMultiset).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SamplingBenchmark {
+
+	/** The number of draws per batch call, also the number of pre-generated uniforms. */
+	static final int BATCH_SIZE = 4096;
+
+	@Param({"BINARY_SEARCH", "CHAN_ASUA", "ALIAS", "SPOOFING"})
+	PMFKind kind;
+
+	@Param({"GENTLE_CURVE", "SINGLE_LINE", "ALTERNATING"})
+	Shape shape;
+
+	@Param({"1000", "100000", "10000000", "100000000"})
+	int n;
+
+	@Param({"100000000"})
+	long lifetime;
+
+	ProbMassFunction pmf;
+
+	double[] uniforms;
+
+	int[] out;
+
+
+	@Setup(Level.Trial)
+	public void buildPMF() {
+		pmf = kind.build(lifetime, shape.weights(n));
+
+		SplittableRandom rng = new SplittableRandom(17L);
+		uniforms = new double[BATCH_SIZE];
+		for (int i = 0; i < uniforms.length; i++) {
+			uniforms[i] = rng.nextDouble();
+		}
+		out = new int[BATCH_SIZE];
+	}
+
+
+	/** One interface call per draw, the way demo.Demonstrate samples. */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void singleDraws(Blackhole blackhole) {
+		ProbMassFunction dist = pmf;
+		double[] u = uniforms;
+		for (int i = 0; i < u.length; i++) {
+			blackhole.consume(dist.getSample(u[i]));
+		}
+	}
+
+
+	/** One interface call per BATCH_SIZE draws. */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] batchDraws() {
+		pmf.sample(uniforms, out);
+		return out;
+	}
+}
@@ -0,0 +1,55 @@
+package bench;
+
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/** The weight shapes used by demo.Demonstrate.Weights, sized on demand. */
+public enum Shape {
+
+	/** weight_i = 1.0 / rand.nextDouble(), sorted ascending. */
+	GENTLE_CURVE {
+		@Override
+		double[] weights(int n) {
+			Random rand = new Random(17L);
+			double[] weights = new double[n];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = 1.0 / rand.nextDouble();
+			}
+			Arrays.sort(weights);
+
+			return weights;
+		}
+	},
+
+	/** Weights that form a line. */
+	SINGLE_LINE {
+		@Override
+		double[] weights(int n) {
+			double[] weights = new double[n];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = 20.0 + i;
+			}
+
+			return weights;
+		}
+	},
+
+	/** Weights that alternate between high and low values. */
+	ALTERNATING {
+		@Override
+		double[] weights(int n) {
+			double[] weights = new double[n];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = 5 * (i % 2) + 1;
+			}
+
+			return weights;
+		}
+	};
+
+
+	/** @return - n weights of this shape. */
+	abstract double[] weights(int n);
+}
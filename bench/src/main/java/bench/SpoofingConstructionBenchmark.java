@@ -0,0 +1,58 @@
+package bench;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Measure how long it takes to build a SpoofingPMF as the number of weights and the requested
+ * lifetime grow. Bin refinement cost depends on the final bin count, which grows with both. The
+ * exact PMFs ignore the lifetime, so ConstructionBenchmark times them at one lifetime only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SpoofingConstructionBenchmark {
+
+	@Param({"SPOOFING"})
+	PMFKind kind;
+
+	@Param({"GENTLE_CURVE", "SINGLE_LINE", "ALTERNATING"})
+	Shape shape;
+
+	@Param({"1000", "32000", "1000000", "10000000"})
+	int n;
+
+	@Param({"1000000", "100000000", "10000000000"})
+	long lifetime;
+
+	double[] weights;
+
+
+	@Setup(Level.Trial)
+	public void makeWeights() {
+		weights = shape.weights(n);
+	}
+
+
+	@Benchmark
+	public ProbMassFunction build() {
+		return kind.build(lifetime, weights);
+	}
+}
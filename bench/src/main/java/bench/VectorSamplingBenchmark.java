@@ -0,0 +1,81 @@
+package bench;
+
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import probMass.ProbMassFunction;
+
+
+/**
+ * Compare the Vector API batch kernels with the scalar batch loops, in draws per second on one
+ * core. Only BinarySearchPMF has a kernel. The kernels are chosen when the JVM starts, so each
+ * variant runs in its own fork. Build the benchmarks with -P vector (without it the "vector"
+ * forks silently run the scalar loops).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorSamplingBenchmark {
+
+	@Param({"BINARY_SEARCH"})
+	PMFKind kind;
+
+	@Param({"GENTLE_CURVE", "ALTERNATING"})
+	Shape shape;
+
+	@Param({"1000", "100000", "10000000"})
+	int n;
+
+	ProbMassFunction pmf;
+
+	double[] uniforms;
+
+	int[] out;
+
+
+	@Setup(Level.Trial)
+	public void buildPMF() {
+		pmf = kind.build(0L, shape.weights(n));
+
+		SplittableRandom rng = new SplittableRandom(17L);
+		uniforms = new double[SamplingBenchmark.BATCH_SIZE];
+		for (int i = 0; i < uniforms.length; i++) {
+			uniforms[i] = rng.nextDouble();
+		}
+		out = new int[SamplingBenchmark.BATCH_SIZE];
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(SamplingBenchmark.BATCH_SIZE)
+	@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "-DprobMass.vector=false"})
+	public int[] scalar() {
+		pmf.sample(uniforms, out);
+		return out;
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(SamplingBenchmark.BATCH_SIZE)
+	@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g",
+			"--add-modules", "jdk.incubator.vector", "-DprobMass.vector=true"})
+	public int[] vector() {
+		pmf.sample(uniforms, out);
+		return out;
+	}
+}
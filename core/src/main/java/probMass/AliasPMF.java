@@ -0,0 +1,150 @@
+package probMass;
+
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * An AliasPMF draws samples in strictly constant time using Walker's alias method. Every entry
+ * owns one column of equal width, each column is split between its owner and a single "alias".
+ * A draw picks a column and then decides between the owner and the alias, so no search or walk
+ * is ever required (unlike the hint walk in ChanAsuaPMF). The table is built with Vose's linear
+ * time method. See VOSE, M. D. 1991. "A linear algorithm for generating random numbers with a
+ * given distribution". IEEE Transactions on Software Engineering, Vol. 17 No. 9, 972 - 975.
+ */
+public class AliasPMF implements ProbMassFunction, Serializable {
+
+	/** The probability that column i returns i (rather than alias[i]). */
+	private double[] probability;
+
+	/** The entry returned when column i does not return i. */
+	private int[] alias;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public AliasPMF(double[] weights) {
+
+		long start = System.nanoTime();
+		Util.checkPMFInputArray(weights);
+
+		int n = weights.length;
+		double sum = Util.sum(weights);
+
+		this.probability = new double[n];
+		this.alias = new int[n];
+
+		//scale the weights so the average column holds exactly 1.0
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			probability[i] = weights[i] * n / sum;
+			if (probability[i] < 1.0) {
+				small[numSmall++] = i;
+			} else {
+				large[numLarge++] = i;
+			}
+		}
+
+		//top up each small column with mass taken from a large column
+		while (numSmall > 0 && numLarge > 0) {
+			int less = small[--numSmall];
+			int more = large[--numLarge];
+
+			alias[less] = more;
+			probability[more] = (probability[more] + probability[less]) - 1.0;
+
+			if (probability[more] < 1.0) {
+				small[numSmall++] = more;
+			} else {
+				large[numLarge++] = more;
+			}
+		}
+
+		//whatever remains is full (up to round-off error)
+		while (numLarge > 0) {
+			probability[large[--numLarge]] = 1.0;
+		}
+		while (numSmall > 0) {
+			probability[small[--numSmall]] = 1.0;
+		}
+
+		PMFMetrics.pmfBuilt("AliasPMF", n, 12L * n, System.nanoTime() - start);
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+		return sampleFromTables(probability, alias, uniformDraw);
+	}
+
+
+	/**
+	 * The top 32 bits pick a column (with a multiply instead of a double to int conversion), the
+	 * low 32 bits decide between the column's owner and its alias.
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(long randomBits) {
+
+		int column = (int) (((randomBits >>> 32) * probability.length) >>> 32);
+		double coin = (randomBits & 0xFFFFFFFFL) * 0x1.0p-32;
+
+		return (coin < probability[column]) ? column : alias[column];
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		double[] prob = this.probability;
+		int[] aliases = this.alias;
+		for (int i = 0; i < uniformDraws.length; i++) {
+			out[i] = sampleFromTables(prob, aliases, uniformDraws[i]);
+		}
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		double[] prob = this.probability;
+		int[] aliases = this.alias;
+		for (int i = from; i < to; i++) {
+			out[i] = sampleFromTables(prob, aliases, rng.nextDouble());
+		}
+	}
+
+
+	/**
+	 * The integer part of (n * uniformDraw) picks a column, the fractional part decides between
+	 * the column's owner and its alias.
+	 */
+	private static int sampleFromTables(double[] prob, int[] aliases, double uniformDraw) {
+
+		double scaled = prob.length * uniformDraw;
+		int column = (int) scaled;
+
+		return (scaled - column < prob[column]) ? column : aliases[column];
+	}
+}
@@ -0,0 +1,125 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A PMFBank whose tables are Java arrays (see PMFBankBuilder). Distribution i owns positions
+ * offsets[i] to offsets[i + 1] - 1 of the shared CMF and hint arrays. Its hints hold shared
+ * positions, so a draw never adds the offset until it returns.
+ */
+final class ArrayPMFBank implements PMFBank, Serializable {
+
+	/** Where each distribution starts, offsets[size()] is the total number of entries. */
+	private final int[] offsets;
+
+	/** The CMF of every distribution, one after another. */
+	private final double[] cmf;
+
+	/** One hint per entry, hint j of a distribution of n entries is for the uniform j / n. */
+	private final int[] hints;
+
+
+	ArrayPMFBank(int[] offsets, double[] cmf, int[] hints) {
+		this.offsets = offsets;
+		this.cmf = cmf;
+		this.hints = hints;
+	}
+
+
+	@Override
+	public int size() {
+		return offsets.length - 1;
+	}
+
+
+	@Override
+	public int size(int pmfId) {
+		Objects.checkIndex(pmfId, size());
+		return offsets[pmfId + 1] - offsets[pmfId];
+	}
+
+
+	@Override
+	public int getSample(int pmfId, double uniformDraw) {
+		Objects.checkIndex(pmfId, size());
+		return sampleFromTables(offsets, cmf, hints, pmfId, uniformDraw);
+	}
+
+
+	@Override
+	public void sample(int pmfId, double[] uniformDraws, int[] out) {
+		Objects.checkIndex(pmfId, size());
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		int[] offs = this.offsets;
+		double[] c = this.cmf;
+		int[] h = this.hints;
+		for (int i = 0; i < uniformDraws.length; i++) {
+			out[i] = sampleFromTables(offs, c, h, pmfId, uniformDraws[i]);
+		}
+	}
+
+
+	@Override
+	public void sample(int[] pmfIds, double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, pmfIds.length);
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		int[] offs = this.offsets;
+		double[] c = this.cmf;
+		int[] h = this.hints;
+		for (int i = 0; i < uniformDraws.length; i++) {
+			int pmfId = Objects.checkIndex(pmfIds[i], offs.length - 1);
+			out[i] = sampleFromTables(offs, c, h, pmfId, uniformDraws[i]);
+		}
+	}
+
+
+	@Override
+	public void sample(int pmfId, RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkIndex(pmfId, size());
+		Objects.checkFromToIndex(from, to, out.length);
+
+		int[] offs = this.offsets;
+		double[] c = this.cmf;
+		int[] h = this.hints;
+		for (int i = from; i < to; i++) {
+			out[i] = sampleFromTables(offs, c, h, pmfId, rng.nextDouble());
+		}
+	}
+
+
+	/** Take the distribution's hint for the uniform and walk up its CMF (callers check pmfId). */
+	private static int sampleFromTables(
+			int[] offsets, double[] cmf, int[] hints, int pmfId, double uniformDraw) {
+
+		int start = offsets[pmfId];
+		int n = offsets[pmfId + 1] - start;
+
+		//the last entry of every CMF is 1, so the walk stays within the distribution
+		int hint = hints[start + (int) (n * uniformDraw)];
+		int currentNum = hint;
+		while (cmf[currentNum] < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("PMFBank", currentNum - hint);
+		}
+
+		return currentNum - start;
+	}
+
+
+	/** Write this bank in the format described by PMFFiles. */
+	void writeTo(PMFFiles.Output out) throws IOException {
+		out.putHeader(PMFFiles.BANK, cmf.length, size(), 0);
+		out.putInts(offsets);
+		out.putDoubles(cmf);
+		out.putInts(hints);
+	}
+}
@@ -0,0 +1,572 @@
+package probMass;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * A Bin is used while building a SpoofingPMF. It fits a line to a sorted run of probabilities and
+ * measures the error of that fit. Once refinement is complete SpoofingPMF copies the line out of
+ * each Bin and the Bins are discarded.
+ */
+class Bin implements Comparable<Bin> {
+
+	/** How many bins each ForkJoinPool worker splits per round when refining in parallel. */
+	private static final int SPLITS_PER_WORKER = 4;
+
+	/** Bins of this many entries or fewer cannot be split (see split()). */
+	private static final int MAX_UNSPLITTABLE = 3;
+
+	/** All of the sorted probabilities (shared by every bin, this bin covers n of them). */
+	private SortedProbabilities pValues;
+
+	/** The number of entries in this bin. */
+	private int n;
+
+	/** (n+1)/2 is stored rather than frequently recomputed */
+	private double nPlusOneOver2;
+
+	/** The total probability in this bin (needed to compute ChanAsua Distribution). */
+	private final double pSum;
+
+	/** The y intercept (kinda) of the interpolating line. */
+	private double height;
+
+	/** The slope of the interpolating line. */
+	private double slope;
+
+	/** The error in this bins interpolation. */
+	private double inBinLambda;
+
+	/** Maps sorted positions to the original order (shared by all bins, null when presorted). */
+	private EntryTable entries;
+
+	/** The sorted position of this bin's left most (greatest) pValue. */
+	private int leftMost;
+
+
+	/**
+	 * Build a set of bin that supports spoofing for these weights.
+	 * 
+	 * @param limits - When to stop refining (see SpoofingLimits)
+	 * @param weights - The initial unsorted weights
+	 * @param pool - The pool used to sort and refine in parallel (null to build on this thread)
+	 * 
+	 * @return - An acceptable set of Bins
+	 */
+	static Bin[] buildBins(SpoofingLimits limits, double[] weights, ForkJoinPool pool) {
+		if (pool == null) {
+			return buildBinsOnThisThread(limits, weights, null);
+		}
+		return pool.submit(() -> buildBinsOnThisThread(limits, weights, pool)).join();
+	}
+
+
+	/**
+	 * Build a set of bin that supports spoofing for probabilities that are already sorted.
+	 *
+	 * @param limits - When to stop refining (see SpoofingLimits)
+	 * @param pValues - The normalized probabilities in descending order (not copied)
+	 * @param entries - The original index of each pValue, or null if pValues is in original order
+	 * @param pool - The pool used to refine in parallel (null to build on this thread)
+	 *
+	 * @return - An acceptable set of Bins
+	 */
+	static Bin[] buildBins(SpoofingLimits limits, SortedProbabilities pValues, EntryTable entries,
+			ForkJoinPool pool) {
+		if (pool == null) {
+			return refine(limits, new Bin(pValues, entries, 0, pValues.length()), null);
+		}
+		return pool.submit(
+				() -> refine(limits, new Bin(pValues, entries, 0, pValues.length()), pool)).join();
+	}
+
+
+	/**
+	 * @param pool - The ForkJoinPool whose workers should share the sorting and refinement (null
+	 * to do it all on this thread)
+	 */
+	private static Bin[] buildBinsOnThisThread(
+			SpoofingLimits limits, double[] weights, ForkJoinPool pool) {
+
+		long start = System.nanoTime();
+
+		//ensure all weights are > 0
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("Negative Weights not allowed");
+			}
+		}
+		double wSum = Util.sum(weights);
+
+		//see if the input weights are presorted (if so, do not store entries)
+		boolean inputWasSorted = true;
+		for (int i = 1; i < weights.length; i++) {
+			if(weights[i] > weights[i-1]) {
+				inputWasSorted = false;
+				break;
+			}
+		}
+
+		Bin initalBin = null;
+		
+		if(inputWasSorted) {
+
+			//normalize input
+			double[] pValues = new double[weights.length];
+			for (int i = 0; i < pValues.length; i++) {
+				pValues[i] = weights[i]/wSum;
+			}
+
+			//create first bin -- don't use entries because the input was ordered correctly
+			initalBin = new Bin(SortedProbabilities.of(pValues), null, 0, pValues.length);
+
+		} else {
+
+			//do inital sorting WHILE KEEPING TRACK OF INITAL ORDER (using primitive keys)
+			double[] unsorted = new double[weights.length];
+			for (int i = 0; i < unsorted.length; i++) {
+				unsorted[i] = weights[i] / wSum;
+			}
+
+			double[] pValues = new double[unsorted.length];
+			EntryTable entries = EntryTable.forSize(unsorted.length);
+			IndexedSort.sortDescending(unsorted, pool != null, pValues, entries);
+			initalBin = new Bin(SortedProbabilities.of(pValues), entries, 0, pValues.length);
+		}
+		PMFMetrics.buildPhase(
+				"SpoofingPMF", inputWasSorted ? "normalize" : "sort", System.nanoTime() - start);
+
+		return refine(limits, initalBin, pool);
+	}
+
+
+	/** Refine the initial bin serially or in parallel (when there is a pool). */
+	private static Bin[] refine(SpoofingLimits limits, Bin initalBin, ForkJoinPool pool) {
+
+		long start = System.nanoTime();
+		Bin[] bins = (pool != null)
+				? refineInParallel(initalBin, limits.getErrorLimit(), limits.getMaxBins(), pool)
+				: refine(initalBin, limits.getErrorLimit(), limits.getMaxBins());
+		PMFMetrics.buildPhase("SpoofingPMF", "refine", System.nanoTime() - start);
+
+		return bins;
+	}
+
+
+	/**
+	 * Repeatedly split the bin with the largest inBinLambda until the total error is acceptable
+	 * (or there are maxBins bins, or every bin is too small to split).
+	 *
+	 * The bins are kept in a max-heap (see compareTo) so the worst bin is found in log time, and
+	 * the total error is updated incrementally as each bin is replaced by its children.  The
+	 * incremental total is only an estimate (subtracting a large parent error leaves round-off
+	 * behind), so the exact sum is recomputed before refinement is allowed to stop.  Bins that are
+	 * too small to split leave the heap for good, so a tight error limit on a few weights ends with
+	 * bins of 2 or 3 entries instead of failing.
+	 *
+	 * @param initalBin - A single bin that covers every entry
+	 * @param errorLimit - Refinement stops once the sum of all inBinLambda values is below this
+	 * @param maxBins - Refinement stops once there are this many bins
+	 *
+	 * @return - The refined bins, in descending order of inBinLambda
+	 */
+	private static Bin[] refine(Bin initalBin, double errorLimit, int maxBins) {
+
+		PriorityQueue<Bin> binHeap = new PriorityQueue<>();
+		binHeap.add(initalBin);
+		List<Bin> unsplittable = new ArrayList<>();
+
+		double totalError = initalBin.inBinLambda;
+		int numBins = 1;
+		int iterations = 0;
+
+		while (totalError > errorLimit && numBins < maxBins && !binHeap.isEmpty()) {
+
+			Bin highErrorBin = binHeap.poll();
+			if (highErrorBin.n <= MAX_UNSPLITTABLE) {
+				unsplittable.add(highErrorBin);
+				continue;
+			}
+
+			iterations++;
+			Bin[] children = highErrorBin.split();
+			numBins += children.length - 1;
+
+			totalError -= highErrorBin.inBinLambda;
+			for (int i = 0; i < children.length; i++) {
+				binHeap.add(children[i]);
+				totalError += children[i].inBinLambda;
+			}
+
+			//confirm the running total before stopping
+			if (totalError <= errorLimit) {
+				totalError = sumErrors(binHeap, unsplittable);
+			}
+		}
+
+		binHeap.addAll(unsplittable);
+		return drain(binHeap, iterations, errorLimit);
+	}
+
+
+	/**
+	 * Refine like refine(Bin, double, int), but split several bins at once using the ForkJoinPool.
+	 * Each round takes the worst bins off the heap and splits them in parallel (splitting is where
+	 * the time goes: every child fits a line to its pValues). The children are then applied in
+	 * order, worst parent first, against the one shared total error, and any parents that are no
+	 * longer needed go back on the heap. The result therefore matches refine() except where a
+	 * child would have been split before another parent in the round.
+	 *
+	 * @param initalBin - A single bin that covers every entry
+	 * @param errorLimit - Refinement stops once the sum of all inBinLambda values is below this
+	 * @param maxBins - Refinement stops once there are this many bins
+	 * @param pool - The pool that splits the bins (ForkJoinTask.getPool() is not used because a
+	 * task joined from outside its pool may run on the joining thread)
+	 *
+	 * @return - The refined bins, in descending order of inBinLambda
+	 */
+	private static Bin[] refineInParallel(
+			Bin initalBin, double errorLimit, int maxBins, ForkJoinPool pool) {
+
+		int splitsPerRound = SPLITS_PER_WORKER * pool.getParallelism();
+
+		PriorityQueue<Bin> binHeap = new PriorityQueue<>();
+		binHeap.add(initalBin);
+		List<Bin> unsplittable = new ArrayList<>();
+
+		double totalError = initalBin.inBinLambda;
+		int numBins = 1;
+		int iterations = 0;
+
+		while (totalError > errorLimit && numBins < maxBins && !binHeap.isEmpty()) {
+
+			iterations++;
+
+			//split the worst bins in parallel (bins too small to split leave the heap for good)
+			int roundSize = Math.min(splitsPerRound, maxBins - numBins);
+			List<Bin> parents = new ArrayList<>();
+			List<RecursiveTask<Bin[]>> splits = new ArrayList<>();
+			while (parents.size() < roundSize && !binHeap.isEmpty()) {
+				Bin parent = binHeap.poll();
+				if (parent.n <= MAX_UNSPLITTABLE) {
+					unsplittable.add(parent);
+					continue;
+				}
+				parents.add(parent);
+				splits.add(new RecursiveTask<Bin[]>() {
+					@Override
+					protected Bin[] compute() {
+						return parent.split();
+					}
+				});
+			}
+			for (RecursiveTask<Bin[]> split : splits) {
+				pool.execute(split);
+			}
+
+			//apply the splits in the order refine() would have made them
+			for (int i = 0; i < parents.size(); i++) {
+
+				if (totalError <= errorLimit || numBins >= maxBins) {
+					binHeap.add(parents.get(i));
+					continue;
+				}
+
+				Bin[] children = splits.get(i).join();
+				numBins += children.length - 1;
+
+				totalError -= parents.get(i).inBinLambda;
+				for (int j = 0; j < children.length; j++) {
+					binHeap.add(children[j]);
+					totalError += children[j].inBinLambda;
+				}
+
+				//confirm the running total before stopping (parents not yet applied count too)
+				if (totalError <= errorLimit) {
+					totalError = sumErrors(binHeap, unsplittable);
+					for (int j = i + 1; j < parents.size(); j++) {
+						totalError += parents.get(j).inBinLambda;
+					}
+				}
+			}
+		}
+
+		binHeap.addAll(unsplittable);
+		return drain(binHeap, iterations, errorLimit);
+	}
+
+
+	/** @return - The exact total inBinLambda of two sets of bins. */
+	private static double sumErrors(Iterable<Bin> bins, Iterable<Bin> moreBins) {
+		double total = 0;
+		for (Bin bin : bins) {
+			total += bin.inBinLambda;
+		}
+		for (Bin bin : moreBins) {
+			total += bin.inBinLambda;
+		}
+		return total;
+	}
+
+
+	/** Empty the heap (worst bin first) and report the result to PMFMetrics. */
+	private static Bin[] drain(PriorityQueue<Bin> binHeap, int iterations, double errorLimit) {
+
+		Bin[] bins = new Bin[binHeap.size()];
+		double lambda = 0;
+		for (int i = 0; i < bins.length; i++) {
+			bins[i] = binHeap.poll();
+			lambda += bins[i].inBinLambda;
+		}
+		PMFMetrics.binsRefined(bins.length, iterations, lambda, errorLimit);
+
+		return bins;
+	}
+
+
+	/**
+	 * Build a bin -- automatically apply an interpolation.  A bin is a view of n consecutive
+	 * entries in the shared pValues, so building (and splitting) bins never copies them.
+	 * 
+	 * @param pValues - All of the sorted probabilities
+	 * @param entries - The numbers that must be returned when sampling (indexed by sorted
+	 * position), or null when the input was already sorted
+	 * @param leftMost - The sorted position of the left most (greatest) pValue in this bin
+	 * @param n - The number of pValues in this bin
+	 */
+	private Bin(SortedProbabilities pValues, EntryTable entries, int leftMost, int n) {
+
+		this.pValues = pValues;
+		this.leftMost = leftMost;
+		this.n = n;
+		this.nPlusOneOver2 = (n + 1.0) / 2.0;
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += pValues.get(leftMost + i);
+		}
+		this.pSum = sum;
+		this.height = pSum / ((double) n);
+		setSlope();
+		this.inBinLambda = computeError(slope);
+		this.entries = entries;
+
+//		System.out.println(
+//				"Made bin with error :: " + inBinLambda +
+//				"\tsize :: " + n +
+//				"\t pSum :: " + pSum +
+//				"\t slope :: " + slope);
+	}
+
+
+	/** @return - The sum of all pValues in this Bin. */
+	double getPSum() {
+		return pSum;
+	}
+
+
+	/** @return - The error in this bin's interpolation. */
+	double getInBinLambda() {
+		return inBinLambda;
+	}
+
+
+	/** @return - The number of entries in this Bin. */
+	int getSize() {
+		return n;
+	}
+
+
+	/** @return - The slope of the interpolating line. */
+	double getSlope() {
+		return slope;
+	}
+
+
+	/** @return - The interpolated probability of the left most (greatest) entry. */
+	double getFirstQ() {
+		return computeQ(0);
+	}
+
+
+	/** @return - The sorted position of this bin's left most (greatest) pValue. */
+	int getLeftMost() {
+		return leftMost;
+	}
+
+
+	/** @return - The EntryTable this Bin samples from (null when the input was presorted). */
+	EntryTable getEntries() {
+		return entries;
+	}
+
+
+	/**
+	 * Find, and set, the slope the minimizes inBinLambda
+	 * 
+	 * Parker and Engler derive the forumala used herin to compute the best possible beta.
+	 * 
+	 * This method can implement the bisection method (which may be slightly more accurate)
+	 * or use the formula for Beta shown in Parker and Engler.
+	 */
+	private void setSlope() {
+
+		//when a bin has size = 2 we can directly solve
+		if (n == 2) {
+			this.slope = (pValues.get(leftMost) - this.height) * (-2.0);
+
+//			System.out.println("slope :: " + slope);
+//			
+//			for (int i = 0; i < pValues.length; i++) {
+//				System.out.println("p[" + i + "] :: " + pValues[i]);
+//			}
+//			for (int i = 0; i < pValues.length; i++) {
+//				System.out.println("q[" + i + "] :: " + this.computeQ(i));
+//			}
+			return;
+		}
+
+		//use these values for the inital points in the binary search
+		double lowSlope = 0;	//this slope produces a flat bin
+		double highSlope = -height / ((n + 1.0) / 2.0);	//this slope makes q_n = 0
+
+		double lowSlopeError = computeError(lowSlope);
+		double highSlopeError = computeError(highSlope);
+
+		
+		//if inital error is basically numeric error -- end now
+		if (lowSlopeError <= 1.0e-25) {
+			this.slope = lowSlope;
+			return;
+		}
+
+		//if inital error is basically numeric error -- end now
+		if (highSlopeError <= 1.0e-25) {
+			this.slope = highSlope;
+			return;
+		}
+
+
+		//while optimal slope is still changing
+		while (Math.abs((lowSlope - highSlope) / Math.min(lowSlope, highSlope)) > 0.00000001) {
+
+			if (lowSlopeError < highSlopeError) {
+				//low slope is better -- reset highSlope, recompute its error
+				highSlope = (lowSlope + highSlope) / 2.0;
+				highSlopeError = computeError(highSlope);
+			} else {
+				//high slope is better -- reset lowSlope, recompute its error
+				lowSlope = (lowSlope + highSlope) / 2.0;
+				lowSlopeError = computeError(lowSlope);
+			}
+
+//			System.out.println("low :: " + lowSlope);
+//			System.out.println("high :: " + highSlope);
+		}
+
+		this.slope = (lowSlope + highSlope) / 2.0;
+	}
+
+
+	/**
+	 * Parker and Engler show how to compute error.  The lambda_i values are summed as they are
+	 * computed (in the same order Util.sum would add them) so no scratch array is needed.  The
+	 * error depends on sum(p_i^2 / q_i), which has no closed form in terms of prefix sums of p_i,
+	 * so one pass over the bin is still required.
+	 * 
+	 * @param slope - The slope of the interpolating line being evaluated
+	 * 
+	 * @return - The sum of all lambda_i values --> aka 
+	 */
+	private double computeError(double slope) {
+
+		double error = 0;
+		for (int i = 0; i < n; i++) {
+			double q = height + slope * (i + 1 - nPlusOneOver2);
+			double thisError = pValues.get(leftMost + i) / q - 1.0;
+			error += q * thisError * thisError;
+		}
+
+		//only a q of 0 makes NaN (a bin of zero weights, or a 2 entry bin fit exactly to a zero),
+		//so the loop above stays free of branches and those rare bins are summed again
+		return Double.isNaN(error) ? computeErrorWithZeros(slope) : error;
+	}
+
+
+	/** computeError, with Util.lambdaTerm for each entry whose q is 0 (p / q would be 0 / 0). */
+	private double computeErrorWithZeros(double slope) {
+
+		double error = 0;
+		for (int i = 0; i < n; i++) {
+			double q = height + slope * (i + 1 - nPlusOneOver2);
+			if (q == 0) {
+				error += Util.lambdaTerm(pValues.get(leftMost + i), q);
+				continue;
+			}
+			double thisError = pValues.get(leftMost + i) / q - 1.0;
+			error += q * thisError * thisError;
+		}
+
+		return error;
+	}
+
+
+	/** Use the formula for Q to compute an entries's prob. */
+	private double computeQ(int index) {
+		return height + slope * (index + 1 - nPlusOneOver2);
+	}
+
+
+	/**
+	 * Split this Bin in "half".  Ensure the bin with large p_i entries has a size that is 
+	 * divisible by two.  This constraint ensures that bins with an odd number of entries (i.e. 
+	 * bins that cannot be "split until perfect") are only created with the smallest p_i values.
+	 * 
+	 * @return - Two bins that represent the original bin after a split.
+	 */
+	Bin[] split() {
+
+//		DecimalFormat df = new DecimalFormat("#.####");
+//		System.out.println(
+//				"Split --> " +
+//				"error " + df.format(this.inBinLambda) +
+//				"   size " + n + "   pSum " + df.format(this.pSum));
+
+		if (this.n <= MAX_UNSPLITTABLE) {
+			throw new IllegalStateException(
+					"Cannot split a bin with 3 or fewer entries, current size is :: " + n);
+		}
+
+		int index = this.n / 2;
+		if (index % 2 == 1) {
+			index--;
+		}
+
+		//the children share this bin's pValues and EntryTable, only their positions differ
+		return new Bin[]{
+					new Bin(this.pValues, this.entries, this.leftMost, index),
+					new Bin(this.pValues, this.entries, this.leftMost + index, n - index)
+				};
+	}
+
+
+	/** 
+	 * Sort by inBinLambda (in descending order).
+	 * 
+	 * @param other - A second bin
+	 */
+	@Override
+	public int compareTo(Bin other) {
+		if (this.inBinLambda < other.inBinLambda) {
+			return 1;
+		} else if (this.inBinLambda > other.inBinLambda) {
+			return -1;
+		} else {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A BinarySearchPMF accelerates random draws by precomputing the cumulative mass function of a
+ * probability mass function. The precomputed CMF is used to quickly transform a uniform random
+ * number to an array index by performing a binary search for the input uniform random number.
+ *
+ * The search is branchless (see Util.lowerBound), and batches interleave four searches so their
+ * memory accesses overlap.
+ */
+public class BinarySearchPMF implements CumulativePMF, Serializable {
+
+	/** The CMF of the input distribution. */
+	private double[] cummMassFun;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param weights - A set of weights, each number will be drawn with prob (wieght[i] / sum)
+	 */
+	public BinarySearchPMF(double[] weights) {
+
+		long start = System.nanoTime();
+		this.cummMassFun = Util.buildCMF(weights);
+
+		assert(cummMassFun[cummMassFun.length - 1] == 1) : "The Final entry in the CMF should be 1";
+
+		PMFMetrics.pmfBuilt("BinarySearchPMF", weights.length, 8L * weights.length,
+				System.nanoTime() - start);
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+		return Util.lowerBound(cummMassFun, uniformDraw);
+	}
+
+
+	@Override
+	public int size() {
+		return cummMassFun.length;
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return cummMassFun[outcome];
+	}
+
+
+	/** Search only the range, see CumulativePMF.getSample(double, int, int). */
+	@Override
+	public int getSample(double uniformDraw, int lo, int hi) {
+
+		double[] cmf = this.cummMassFun;
+		Util.checkSampleRange(lo, hi, cmf.length);
+		double point = Util.rescale(uniformDraw, (lo > 0) ? cmf[lo - 1] : 0, cmf[hi - 1]);
+		return Util.lowerBound(cmf, lo, hi, point);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		double[] cmf = this.cummMassFun;
+
+		VectorSupport.Kernels kernels = VectorSupport.KERNELS;
+		if (kernels != null && uniformDraws.length >= VectorSupport.MIN_BATCH) {
+			kernels.binarySearch(cmf, uniformDraws, out, 0, uniformDraws.length);
+			return;
+		}
+
+		Util.lowerBounds(cmf, uniformDraws, out, 0, uniformDraws.length);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		double[] cmf = this.cummMassFun;
+
+		VectorSupport.Kernels kernels = VectorSupport.KERNELS;
+		if (kernels != null && to - from >= VectorSupport.MIN_BATCH) {
+			Util.sampleInChunks(rng, out, from, to,
+					(uniforms, samples, outFrom, count) ->
+							kernels.binarySearch(cmf, uniforms, samples, outFrom, count));
+			return;
+		}
+
+		Util.sampleInChunks(rng, out, from, to,
+				(uniforms, samples, outFrom, count) ->
+						Util.lowerBounds(cmf, uniforms, samples, outFrom, count));
+	}
+
+
+	/** Write this PMF in the format described by PMFFiles. */
+	void writeTo(PMFFiles.Output out) throws IOException {
+		out.putHeader(PMFFiles.BINARY_SEARCH, cummMassFun.length, cummMassFun.length, 0);
+		out.putDoubles(cummMassFun);
+	}
+}
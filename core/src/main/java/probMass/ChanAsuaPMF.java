@@ -0,0 +1,200 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A ChanAsuaPMF accelerates random draws by precomputing the cumulative mass function of a
+ * probability mass function and a set of hints that will frequently lead directly to the correct
+ * random sample. See CHAN, H. C. AND ASAU, Y. 1974. "On generating random variates from an
+ * empirical distribution" . IIE Transactions, Vol. 6 No. 2, 163 - 166.
+ *
+ * This implementation uses 1 hint for every entry in the input array of weights.
+ */
+public class ChanAsuaPMF implements CumulativePMF, Serializable {
+
+	/** The CMF of the input distribution. */
+	private double[] cummulativeMassFunction;
+
+	/** A series of hints that will speed up taking samples. */
+	private int[] hintTable;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public ChanAsuaPMF(double[] weights) {
+
+		long start = System.nanoTime();
+		this.cummulativeMassFunction = Util.buildCMF(weights);
+		
+		//build hintTable
+		this.hintTable = new int[weights.length];
+		double n = (double) weights.length;
+		for (int i = 0; i < hintTable.length; i++) {
+			hintTable[i] = findHint(((double) i) / n);
+		}
+
+		PMFMetrics.pmfBuilt("ChanAsuaPMF", weights.length, 12L * weights.length,
+				System.nanoTime() - start);
+	}
+
+
+	/** Use a binary search to find the unaccelerated sample. */
+	private int findHint(double point) {
+		int val = Arrays.binarySearch(cummulativeMassFunction, point);
+
+		if (val < 0) {
+			return -val - 1;
+		} else {
+			return val;
+		}
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		//get the hint
+		int hint = hintTable[(int) (hintTable.length * uniformDraw)];
+
+		//walk up the table until you are done
+		int currentNum = hint;
+		while (cummulativeMassFunction[currentNum] < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("ChanAsuaPMF", currentNum - hint);
+		}
+
+		return currentNum;
+	}
+
+
+	/**
+	 * Take the hint from the top 32 bits with an integer multiply, then walk with the top 53 bits
+	 * as a uniform. Gives the same sample as getSample((randomBits >>> 11) * 0x1.0p-53).
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(long randomBits) {
+
+		//the hint for the top 32 bits is never past the sample for the top 53 bits
+		int hint = hintTable[(int) (((randomBits >>> 32) * hintTable.length) >>> 32)];
+
+		double uniformDraw = (randomBits >>> 11) * 0x1.0p-53;
+		int currentNum = hint;
+		while (cummulativeMassFunction[currentNum] < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("ChanAsuaPMF", currentNum - hint);
+		}
+
+		return currentNum;
+	}
+
+
+	@Override
+	public int size() {
+		return cummulativeMassFunction.length;
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return cummulativeMassFunction[outcome];
+	}
+
+
+	/**
+	 * Start from the hint of the rescaled uniform (or lo, if the hint is below the range) and walk
+	 * up, see CumulativePMF.getSample(double, int, int).
+	 */
+	@Override
+	public int getSample(double uniformDraw, int lo, int hi) {
+
+		double[] cmf = this.cummulativeMassFunction;
+		int[] hints = this.hintTable;
+		Util.checkSampleRange(lo, hi, cmf.length);
+		double point = Util.rescale(uniformDraw, (lo > 0) ? cmf[lo - 1] : 0, cmf[hi - 1]);
+
+		//rescaling can round the point up to 1, and past cmf[hi - 1]
+		int hint = hints[Math.min((int) (hints.length * point), hints.length - 1)];
+		int currentNum = Math.max(hint, lo);
+		int last = hi - 1;
+		while (currentNum < last && cmf[currentNum] < point) {
+			currentNum++;
+		}
+
+		return currentNum;
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		double[] cmf = this.cummulativeMassFunction;
+		int[] hints = this.hintTable;
+		for (int i = 0; i < uniformDraws.length; i++) {
+			double uniformDraw = uniformDraws[i];
+			int hint = hints[(int) (hints.length * uniformDraw)];
+			int currentNum = hint;
+			while (cmf[currentNum] < uniformDraw) {
+				currentNum++;
+			}
+			if (PMFMetrics.SAMPLE_WALKS) {
+				PMFMetrics.hintWalk("ChanAsuaPMF", currentNum - hint);
+			}
+			out[i] = currentNum;
+		}
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		double[] cmf = this.cummulativeMassFunction;
+		int[] hints = this.hintTable;
+		for (int i = from; i < to; i++) {
+			double uniformDraw = rng.nextDouble();
+			int hint = hints[(int) (hints.length * uniformDraw)];
+			int currentNum = hint;
+			while (cmf[currentNum] < uniformDraw) {
+				currentNum++;
+			}
+			if (PMFMetrics.SAMPLE_WALKS) {
+				PMFMetrics.hintWalk("ChanAsuaPMF", currentNum - hint);
+			}
+			out[i] = currentNum;
+		}
+	}
+
+
+	/** Write this PMF in the format described by PMFFiles. */
+	void writeTo(PMFFiles.Output out) throws IOException {
+		out.putHeader(PMFFiles.CHAN_ASUA, cummulativeMassFunction.length, hintTable.length, 0);
+		out.putDoubles(cummulativeMassFunction);
+		out.putInts(hintTable);
+	}
+}
@@ -0,0 +1,176 @@
+package probMass;
+
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+
+/**
+ * A ConcurrentSampler draws samples from one ProbMassFunction on many threads at once. The
+ * ProbMassFunction is shared (it is immutable), but each thread gets its own random number stream
+ * split from a single seeded generator. No state is shared on the sampling path, so throughput
+ * scales with the number of cores rather than contending on something like java.util.Random's
+ * atomic seed.
+ */
+public class ConcurrentSampler {
+
+	/** The default algorithm for the per-thread streams (see java.util.random). */
+	public static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+
+	/** parallelSample stops splitting work once a task has fewer draws than this. */
+	private static final int MIN_DRAWS_PER_TASK = 1 << 14;
+
+	/** Shared by every thread. Being final also publishes it safely to every thread. */
+	private final ProbMassFunction pmf;
+
+	/** The generator every stream is split from (guarded by this). */
+	private final SplittableGenerator root;
+
+	/** Each thread that calls sample(int[], int, int) gets its own Stream on first use. */
+	private final ThreadLocal<Stream> threadStreams = ThreadLocal.withInitial(this::newStream);
+
+
+	/**
+	 * @param pmf - The distribution to sample from
+	 * @param seed - Seeds the generator all streams are split from
+	 */
+	public ConcurrentSampler(ProbMassFunction pmf, long seed) {
+		this(pmf, RandomGeneratorFactory.<SplittableGenerator>of(DEFAULT_ALGORITHM).create(seed));
+	}
+
+
+	/**
+	 * @param pmf - The distribution to sample from
+	 * @param root - The generator all streams are split from (e.g. a SplittableRandom), the
+	 * sampler takes ownership of it
+	 */
+	public ConcurrentSampler(ProbMassFunction pmf, SplittableGenerator root) {
+		this.pmf = Objects.requireNonNull(pmf);
+		this.root = Objects.requireNonNull(root);
+	}
+
+
+	/** @return - The distribution being sampled. */
+	public ProbMassFunction getPMF() {
+		return pmf;
+	}
+
+
+	/**
+	 * Create a new, independent stream of samples. A Stream must only be used by one thread at a
+	 * time, hand one to each worker.
+	 *
+	 * @return - A Stream whose generator was split from this sampler's generator
+	 */
+	public Stream newStream() {
+		synchronized (root) {
+			return new Stream(pmf, root.split());
+		}
+	}
+
+
+	/**
+	 * Fill part of an array with samples using the calling thread's own stream. Which stream a
+	 * thread receives depends on the order threads first call this method, use newStream() when
+	 * results must be reproducible.
+	 *
+	 * @param out - Receives the samples
+	 * @param from - The first index of out to fill (inclusive)
+	 * @param to - The last index of out to fill (exclusive)
+	 */
+	public void sample(int[] out, int from, int to) {
+		threadStreams.get().sample(out, from, to);
+	}
+
+
+	/**
+	 * Fill an array with samples using every thread of the common ForkJoinPool. The range is split
+	 * in halves, and each half is given a generator split from its parent's, so the result depends
+	 * only on this sampler's seed and never on the number of threads.
+	 *
+	 * @param out - Receives the samples
+	 */
+	public void parallelSample(int[] out) {
+		SplittableGenerator generator;
+		synchronized (root) {
+			generator = root.split();
+		}
+		ForkJoinPool.commonPool().invoke(new SampleTask(pmf, generator, out, 0, out.length));
+	}
+
+
+	/** A single threaded source of samples, see ConcurrentSampler.newStream(). */
+	public static class Stream {
+
+		private final ProbMassFunction pmf;
+
+		private final RandomGenerator rng;
+
+
+		private Stream(ProbMassFunction pmf, RandomGenerator rng) {
+			this.pmf = pmf;
+			this.rng = rng;
+		}
+
+
+		/** @return - One sample from the distribution. */
+		public int getSample() {
+			return pmf.getSample(rng.nextDouble());
+		}
+
+
+		/**
+		 * Fill part of an array with samples.
+		 *
+		 * @param out - Receives the samples
+		 * @param from - The first index of out to fill (inclusive)
+		 * @param to - The last index of out to fill (exclusive)
+		 */
+		public void sample(int[] out, int from, int to) {
+			pmf.sample(rng, out, from, to);
+		}
+	}
+
+
+	/** Recursively halves a range of the output, splitting the generator at each step. */
+	private static class SampleTask extends RecursiveAction {
+
+		private final ProbMassFunction pmf;
+
+		private final SplittableGenerator generator;
+
+		private final int[] out;
+
+		private final int from;
+
+		private final int to;
+
+
+		SampleTask(
+				ProbMassFunction pmf, SplittableGenerator generator, int[] out, int from, int to) {
+			this.pmf = pmf;
+			this.generator = generator;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+
+		@Override
+		protected void compute() {
+			if (to - from <= MIN_DRAWS_PER_TASK) {
+				pmf.sample(generator, out, from, to);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(
+					new SampleTask(pmf, generator.split(), out, from, mid),
+					new SampleTask(pmf, generator.split(), out, mid, to));
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package probMass;
+
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A CumulativePMF is a ProbMassFunction that stores the cumulative mass function of its weights
+ * (BinarySearchPMF, ChanAsuaPMF and their memory-mapped forms, and the rounded CMFs of FloatPMF and
+ * FixedPointPMF). The CMF is enough to sample from part of the distribution without building a
+ * new PMF:
+ *
+ * - getSample(u, lo, hi) samples outcomes lo to (hi - 1) in proportion to their weights, by
+ * rescaling u between cmf[lo - 1] and cmf[hi - 1] and searching only that range.
+ *
+ * - getSample(rng, excluded) samples every outcome that is not in a BitSet of exclusions, by
+ * rejecting excluded samples and falling back to an exact walk over the allowed runs of outcomes
+ * when too many draws are rejected.
+ *
+ * - drawCounts(m, rng) splits m draws over halves of the CMF with binomial draws instead of
+ * drawing them one at a time.
+ */
+public interface CumulativePMF extends ProbMassFunction {
+
+	/** @return - The number of outcomes, samples are between 0 and (size() - 1). */
+	public int size();
+
+
+	/**
+	 * @param outcome - An outcome between 0 and (size() - 1)
+	 *
+	 * @return - The probability of drawing outcome or a smaller outcome (the last one is 1)
+	 */
+	public double getCumulativeProbability(int outcome);
+
+
+	/**
+	 * Sample from the outcomes lo to (hi - 1), each with probability weight[i] / (the sum of their
+	 * weights).
+	 *
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 * @param lo - The first outcome of the range (inclusive)
+	 * @param hi - The last outcome of the range (exclusive)
+	 *
+	 * @return - A sample between lo and (hi - 1)
+	 */
+	public default int getSample(double uniformDraw, int lo, int hi) {
+
+		Util.checkSampleRange(lo, hi, size());
+		double point = Util.rescale(uniformDraw,
+				(lo > 0) ? getCumulativeProbability(lo - 1) : 0,
+				getCumulativeProbability(hi - 1));
+
+		//the same search as Util.lowerBound(cmf, lo, hi, point)
+		int base = lo;
+		for (int len = hi - lo; len > 1; ) {
+			int half = len >>> 1;
+			base = (getCumulativeProbability(base + half - 1) < point) ? base + half : base;
+			len -= half;
+		}
+		return base;
+	}
+
+
+	/**
+	 * Sample from every outcome that is not excluded, each with probability weight[i] / (the sum
+	 * of the weights that are not excluded). Each draw is exact, and costs one pass over the runs
+	 * of excluded outcomes (use getSample(RandomGenerator, BitSet) when few outcomes are excluded).
+	 *
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 * @param excluded - The outcomes that can not be drawn (bits past size() are ignored)
+	 *
+	 * @return - A sample that is not excluded
+	 */
+	public default int getSample(double uniformDraw, BitSet excluded) {
+
+		int n = size();
+		double allowed = 0;
+		for (int lo = excluded.nextClearBit(0); lo < n; ) {
+			int hi = Util.endOfRun(excluded, lo, n);
+			allowed += Util.rangeMass(this, lo, hi);
+			lo = excluded.nextClearBit(hi);
+		}
+		if (!(allowed > 0)) {
+			throw new IllegalArgumentException("Every outcome with probability mass is excluded");
+		}
+
+		//find the run that holds the point, rounding can leave the point past the last one
+		double point = uniformDraw * allowed;
+		int lastLo = -1;
+		int lastHi = -1;
+		for (int lo = excluded.nextClearBit(0); lo < n; ) {
+			int hi = Util.endOfRun(excluded, lo, n);
+			double mass = Util.rangeMass(this, lo, hi);
+			if (mass > 0) {
+				if (point < mass) {
+					return getSample(point / mass, lo, hi);
+				}
+				point -= mass;
+				lastLo = lo;
+				lastHi = hi;
+			}
+			lo = excluded.nextClearBit(hi);
+		}
+		return getSample(Math.nextDown(1.0), lastLo, lastHi);
+	}
+
+
+	/**
+	 * Sample from every outcome that is not excluded, each with probability weight[i] / (the sum
+	 * of the weights that are not excluded). Draws from the whole PMF until one is not excluded, so
+	 * each attempt costs one ordinary draw. After Util.MAX_REJECTIONS excluded draws it falls back
+	 * to getSample(double, BitSet), so a mask that excludes most of the mass is slow but never
+	 * hangs.
+	 *
+	 * @param rng - The source of uniform random numbers
+	 * @param excluded - The outcomes that can not be drawn (bits past size() are ignored)
+	 *
+	 * @return - A sample that is not excluded
+	 */
+	public default int getSample(RandomGenerator rng, BitSet excluded) {
+		Objects.requireNonNull(excluded);
+
+		for (int i = 0; i < Util.MAX_REJECTIONS; i++) {
+			int sample = getSample(rng.nextDouble());
+			if (!excluded.get(sample)) {
+				return sample;
+			}
+		}
+		return getSample(rng.nextDouble(), excluded);
+	}
+
+
+	/** Split the draws over the CMF, see ProbMassFunction.drawCounts. */
+	@Override
+	public default void drawCounts(long m, RandomGenerator rng, CountConsumer counts) {
+		Util.checkDrawCount(m);
+		Util.splitCounts(rng, m, 0, size(), (lo, hi) -> Util.rangeMass(this, lo, hi), counts);
+	}
+
+
+	/** Split the draws over the CMF, see ProbMassFunction.drawCounts. */
+	@Override
+	public default long[] drawCounts(long m, RandomGenerator rng) {
+		long[] counts = new long[size()];
+		drawCounts(m, rng, (outcome, count) -> counts[outcome] = count);
+		return counts;
+	}
+}
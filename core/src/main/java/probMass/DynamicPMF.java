@@ -0,0 +1,198 @@
+package probMass;
+
+
+import java.util.concurrent.locks.StampedLock;
+
+
+/**
+ * A DynamicPMF is a ProbMassFunction whose weights can be changed after it is built. Changing
+ * one weight and drawing one sample both take O(log N) time, so workloads whose weights drift
+ * (bandits, online recommendation) do not have to rebuild a whole CMF to change a few entries.
+ *
+ * The weights are the leaves of a complete binary tree in which every node holds the sum of its
+ * two children. An update rewrites one leaf and recomputes the sums on its path to the root (each
+ * sum is recomputed from its children rather than adjusted by a delta, so rounding error does not
+ * accumulate however many updates are made). A draw scales the uniform by the total weight and
+ * walks from the root to a leaf. The tree uses 16 to 32 bytes per entry.
+ *
+ * Updates are serialized by a lock. Draws never take the lock unless they race an update: they
+ * read optimistically and retry under the read lock if an update happened meanwhile. So one
+ * thread may update the weights while any number of threads sample.
+ */
+public class DynamicPMF implements ProbMassFunction {
+
+	/** The number of entries. */
+	private final int N;
+
+	/** The number of leaves (N rounded up to a power of 2). */
+	private final int numLeaves;
+
+	/**
+	 * The tree, node i has children 2i and 2i + 1 and the root is node 1. The weight of entry i is
+	 * stored at numLeaves + i, unused leaves hold 0.
+	 */
+	private final double[] tree;
+
+	/** Guards the tree. */
+	private final StampedLock lock = new StampedLock();
+
+
+	/**
+	 * Build a DynamicPMF.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public DynamicPMF(double[] weights) {
+
+		long start = System.nanoTime();
+		Util.checkPMFInputArray(weights);
+		if (weights.length == 0 || weights.length > (1 << 30)) {
+			throw new IllegalArgumentException("A DynamicPMF needs 1 to 2^30 weights :: "
+					+ weights.length);
+		}
+
+		this.N = weights.length;
+		int leaves = 1;
+		while (leaves < N) {
+			leaves <<= 1;
+		}
+		this.numLeaves = leaves;
+		this.tree = new double[2 * numLeaves];
+
+		System.arraycopy(weights, 0, tree, numLeaves, N);
+		for (int node = numLeaves - 1; node >= 1; node--) {
+			tree[node] = tree[2 * node] + tree[2 * node + 1];
+		}
+
+		PMFMetrics.pmfBuilt("DynamicPMF", N, 8L * tree.length, System.nanoTime() - start);
+	}
+
+
+	/** @return - The number of entries. */
+	public int size() {
+		return N;
+	}
+
+
+	/** @return - The current weight of entry i. */
+	public double getWeight(int i) {
+		checkIndex(i);
+
+		long stamp = lock.tryOptimisticRead();
+		double weight = tree[numLeaves + i];
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				weight = tree[numLeaves + i];
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return weight;
+	}
+
+
+	/** @return - The sum of every weight. */
+	public double getTotalWeight() {
+
+		long stamp = lock.tryOptimisticRead();
+		double total = tree[1];
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				total = tree[1];
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return total;
+	}
+
+
+	/**
+	 * Change the weight of one entry in O(log N) time.
+	 *
+	 * @param i - The entry to change
+	 * @param weight - Its new weight (finite and non-negative)
+	 */
+	public void updateWeight(int i, double weight) {
+		checkIndex(i);
+		Util.checkWeight(weight);
+
+		long stamp = lock.writeLock();
+		try {
+			int node = numLeaves + i;
+			tree[node] = weight;
+			for (node >>>= 1; node >= 1; node >>>= 1) {
+				tree[node] = tree[2 * node] + tree[2 * node + 1];
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (size() - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		long stamp = lock.tryOptimisticRead();
+		int sample = descend(uniformDraw);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				sample = descend(uniformDraw);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		if (sample < 0) {
+			throw new IllegalStateException("Every weight is 0");
+		}
+		return sample;
+	}
+
+
+	/**
+	 * Walk from the root to the leaf that holds the uniformDraw's share of the total weight. The
+	 * walk never enters an empty subtree, so (whatever the rounding) it ends on a positive weight.
+	 *
+	 * @return - The entry of that leaf, or -1 if every weight is 0
+	 */
+	private int descend(double uniformDraw) {
+
+		double[] sums = this.tree;
+		if (!(sums[1] > 0)) {
+			return -1;
+		}
+
+		double target = uniformDraw * sums[1];
+		int node = 1;
+		while (node < numLeaves) {
+			int left = 2 * node;
+			double leftSum = sums[left];
+			if (target < leftSum || !(sums[left + 1] > 0)) {
+				node = left;
+			} else {
+				target -= leftSum;
+				node = left + 1;
+			}
+		}
+
+		//an optimistic read that raced an update may stray (it is retried)
+		return Math.min(node - numLeaves, N - 1);
+	}
+
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= N) {
+			throw new IllegalArgumentException("No entry " + i + " in a PMF of size " + N);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+
+
+/**
+ * An EntryTable stores the original indices of a sorted set of weights using the narrowest
+ * encoding that can represent every index. Small PMFs keep the 2 bytes per entry footprint of a
+ * short[], larger PMFs pack each index into ceil(log2(N)) bits (17 to 24), and PMFs of more than
+ * 2^24 entries use an int[].
+ */
+abstract class EntryTable implements Serializable {
+
+	/** Bit packing is used when it saves at least a quarter of the space an int[] would use. */
+	private static final int MAX_PACKED_BITS = 24;
+
+
+	/**
+	 * Create an EntryTable that can hold n entries, each between 0 and (n - 1).
+	 *
+	 * @param n - The number of entries (and one more than the largest entry)
+	 *
+	 * @return - An empty EntryTable of the narrowest width that fits
+	 */
+	static EntryTable forSize(int n) {
+
+		int bits = bitsNeeded(n);
+
+		if (bits <= 16) {
+			return new ShortEntries(n);
+		} else if (bits <= MAX_PACKED_BITS) {
+			return new PackedEntries(n, bits);
+		} else {
+			return new IntEntries(n);
+		}
+	}
+
+
+	/**
+	 * @param n - The number of entries (and one more than the largest entry)
+	 *
+	 * @return - The bytes the EntryTable made by forSize(n) stores its entries in
+	 */
+	static long bytesFor(int n) {
+
+		int bits = bitsNeeded(n);
+
+		if (bits <= 16) {
+			return 2L * n;
+		} else if (bits <= MAX_PACKED_BITS) {
+			return 8L * (((long) n * bits + 63L) / 64L);
+		} else {
+			return 4L * n;
+		}
+	}
+
+
+	/** @return - The number of bits needed to store every value between 0 and (n - 1). */
+	static int bitsNeeded(int n) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+	}
+
+
+	/** @return - The entry stored at this position. */
+	abstract int get(int position);
+
+
+	/** Store an entry at this position. */
+	abstract void set(int position, int entry);
+
+
+	/** @return - The number of bits each entry occupies. */
+	abstract int bitsPerEntry();
+
+
+	/** Write every entry (see PMFFiles). */
+	abstract void writeTo(PMFFiles.Output out) throws IOException;
+
+
+	/** Stores each entry in 16 bits (read as unsigned so N can reach 65,536). */
+	private static class ShortEntries extends EntryTable {
+
+		private final short[] entries;
+
+
+		ShortEntries(int n) {
+			this.entries = new short[n];
+		}
+
+
+		@Override
+		int get(int position) {
+			return entries[position] & 0xFFFF;
+		}
+
+
+		@Override
+		void set(int position, int entry) {
+			entries[position] = (short) entry;
+		}
+
+
+		@Override
+		int bitsPerEntry() {
+			return 16;
+		}
+
+
+		@Override
+		void writeTo(PMFFiles.Output out) throws IOException {
+			out.putShorts(entries);
+		}
+	}
+
+
+	/** Stores each entry in 32 bits. */
+	private static class IntEntries extends EntryTable {
+
+		private final int[] entries;
+
+
+		IntEntries(int n) {
+			this.entries = new int[n];
+		}
+
+
+		@Override
+		int get(int position) {
+			return entries[position];
+		}
+
+
+		@Override
+		void set(int position, int entry) {
+			entries[position] = entry;
+		}
+
+
+		@Override
+		int bitsPerEntry() {
+			return 32;
+		}
+
+
+		@Override
+		void writeTo(PMFFiles.Output out) throws IOException {
+			out.putInts(entries);
+		}
+	}
+
+
+	/** Stores each entry in exactly "bits" bits, entries may straddle two longs. */
+	private static class PackedEntries extends EntryTable {
+
+		private final long[] words;
+
+		private final int bits;
+
+		private final long mask;
+
+
+		PackedEntries(int n, int bits) {
+			this.bits = bits;
+			this.mask = (1L << bits) - 1L;
+			this.words = new long[(int) (((long) n * bits + 63L) / 64L)];
+		}
+
+
+		@Override
+		int get(int position) {
+
+			long bitIndex = (long) position * bits;
+			int word = (int) (bitIndex >>> 6);
+			int shift = (int) (bitIndex & 63);
+
+			long value = words[word] >>> shift;
+			if (shift + bits > 64) {
+				value |= words[word + 1] << (64 - shift);
+			}
+
+			return (int) (value & mask);
+		}
+
+
+		@Override
+		void set(int position, int entry) {
+
+			long bitIndex = (long) position * bits;
+			int word = (int) (bitIndex >>> 6);
+			int shift = (int) (bitIndex & 63);
+
+			long value = entry & mask;
+			words[word] = (words[word] & ~(mask << shift)) | (value << shift);
+			if (shift + bits > 64) {
+				int spill = 64 - shift;
+				words[word + 1] = (words[word + 1] & ~(mask >>> spill)) | (value >>> spill);
+			}
+		}
+
+
+		@Override
+		int bitsPerEntry() {
+			return bits;
+		}
+
+
+		@Override
+		void writeTo(PMFFiles.Output out) throws IOException {
+			out.putLongs(words);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package probMass;
+
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+/**
+ * A FixedPointPMF stores the cumulative mass function as unsigned 32 bit thresholds (multiples of
+ * 2^-32) instead of doubles, and compares them against 32 bit fixed point uniforms. That halves
+ * the memory of the CMF (4 bytes per entry, 8 with Chan-Asau hints) and doubles the number of
+ * thresholds per cache line.
+ *
+ * Rounding moves each probability by at most 2^-32. Entries whose probability is below about
+ * 2^-32 can be lost entirely, so the total lambda of the rounding (the statistic SpoofingPMF
+ * bounds, see SpoofingLimits) is computed when the PMF is built. Use getLambda() to decide whether
+ * the rounding is acceptable for a lifetime (ProbMassFunctions does this for you).
+ *
+ * As a CumulativePMF, getCumulativeProbability(i) is threshold i / 2^32, so range and masked draws
+ * and drawCounts follow the rounded probabilities, exactly like getSample does.
+ */
+public class FixedPointPMF implements CumulativePMF, Serializable {
+
+	/** 2^32, the number of distinct fixed point uniforms. */
+	private static final double SCALE = 4294967296.0;
+
+	/**
+	 * The threshold of entry i is the fixed point CMF value at which entry i + 1 starts. They are
+	 * stored xor Integer.MIN_VALUE so a signed comparison orders them as unsigned numbers. The
+	 * last entry's threshold (2^32) does not fit, so it is never read.
+	 */
+	private final int[] thresholds;
+
+	/** Chan-Asau hints (null when searching the thresholds instead). */
+	private final int[] hintTable;
+
+	/** The total lambda of the rounding. */
+	private final double lambda;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights), rounded to a multiple of 2^-32
+	 * @param useHints - True to add a hint table (4 more bytes per entry, constant time draws),
+	 * false to binary search (logarithmic time draws)
+	 */
+	public FixedPointPMF(double[] weights, boolean useHints) {
+
+		long start = System.nanoTime();
+		double[] cmf = Util.buildCMF(weights);
+		int last = cmf.length - 1;
+
+		this.thresholds = new int[cmf.length];
+		double error = 0;
+		long previous = 0;
+		for (int i = 0; i < cmf.length; i++) {
+			long threshold = (i < last)
+					? Math.min(Math.round(cmf[i] * SCALE), (long) SCALE - 1)
+					: (long) SCALE;
+			thresholds[i] = (int) threshold ^ Integer.MIN_VALUE;
+
+			double p = cmf[i] - ((i > 0) ? cmf[i - 1] : 0);
+			error += Util.lambdaTerm(p, (threshold - previous) / SCALE);
+			previous = threshold;
+		}
+		this.lambda = error;
+
+		if (useHints) {
+			//hint j is the sample for the smallest uniform that maps to it
+			this.hintTable = new int[cmf.length];
+			int currentNum = 0;
+			for (int j = 0; j < hintTable.length; j++) {
+				long x = (((long) j << 32) + hintTable.length - 1) / hintTable.length;
+				int biasedX = (int) x ^ Integer.MIN_VALUE;
+				while (currentNum < last && thresholds[currentNum] <= biasedX) {
+					currentNum++;
+				}
+				hintTable[j] = currentNum;
+			}
+		} else {
+			this.hintTable = null;
+		}
+
+		PMFMetrics.pmfBuilt("FixedPointPMF", cmf.length, (useHints ? 8L : 4L) * cmf.length,
+				System.nanoTime() - start);
+	}
+
+
+	/** @return - The total lambda (see SpoofingLimits) caused by rounding the CMF. */
+	public double getLambda() {
+		return lambda;
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+		//u * 2^32 is exact, this keeps the top 32 bits of the draw
+		return sampleFixedPoint((long) (uniformDraw * SCALE));
+	}
+
+
+	/**
+	 * The top 32 bits are the fixed point uniform, no conversion is needed.
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(long randomBits) {
+		return sampleFixedPoint(randomBits >>> 32);
+	}
+
+
+	/**
+	 * The bits are the fixed point uniform, no conversion is needed.
+	 *
+	 * @param randomBits - 32 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(int randomBits) {
+		return sampleFixedPoint(randomBits & 0xFFFFFFFFL);
+	}
+
+
+	/** @param x - A fixed point uniform (between 0 and 2^32 - 1) */
+	private int sampleFixedPoint(long x) {
+
+		int biasedX = (int) x ^ Integer.MIN_VALUE;
+
+		int[] table = this.thresholds;
+		int last = table.length - 1;
+
+		if (hintTable != null) {
+			int hint = hintTable[(int) ((x * hintTable.length) >>> 32)];
+			int currentNum = hint;
+			while (currentNum < last && table[currentNum] <= biasedX) {
+				currentNum++;
+			}
+			if (PMFMetrics.SAMPLE_WALKS) {
+				PMFMetrics.hintWalk("FixedPointPMF", currentNum - hint);
+			}
+			return currentNum;
+		}
+
+		//the branchless search of Util.lowerBound, it never reads the last threshold
+		int base = 0;
+		for (int len = table.length; len > 1; ) {
+			int half = len >>> 1;
+			base = (table[base + half - 1] <= biasedX) ? base + half : base;
+			len -= half;
+		}
+		return (base < last && table[base] <= biasedX) ? base + 1 : base;
+	}
+
+
+	@Override
+	public int size() {
+		return thresholds.length;
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return threshold(Objects.checkIndex(outcome, thresholds.length)) / SCALE;
+	}
+
+
+	/**
+	 * Map the uniform onto the fixed point uniforms of the range and search only the range, see
+	 * CumulativePMF.getSample(double, int, int).
+	 */
+	@Override
+	public int getSample(double uniformDraw, int lo, int hi) {
+
+		int[] table = this.thresholds;
+		Util.checkSampleRange(lo, hi, table.length);
+		long below = (lo > 0) ? threshold(lo - 1) : 0;
+		long top = threshold(hi - 1);
+		if (top <= below) {
+			throw new IllegalArgumentException("The range of outcomes has no probability mass");
+		}
+
+		//x is below top, so the answer is at most (hi - 1) and that threshold is never read
+		long x = below + (long) (uniformDraw * (top - below));
+		int biasedX = (int) x ^ Integer.MIN_VALUE;
+
+		int base = lo;
+		for (int len = hi - lo; len > 1; ) {
+			int half = len >>> 1;
+			base = (table[base + half - 1] <= biasedX) ? base + half : base;
+			len -= half;
+		}
+		return base;
+	}
+
+
+	/** @return - Threshold i as an unsigned number (2^32 for the last entry). */
+	private long threshold(int i) {
+		return (i < thresholds.length - 1)
+				? (thresholds[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL
+				: (long) SCALE;
+	}
+}
@@ -0,0 +1,146 @@
+package probMass;
+
+
+import java.io.Serializable;
+
+
+/**
+ * A FloatPMF stores the cumulative mass function as floats instead of doubles. That halves the
+ * memory of the CMF (4 bytes per entry, 8 with Chan-Asau hints) and doubles the number of CMF
+ * entries per cache line.
+ *
+ * Rounding moves each probability by up to 2^-24 (the spacing of floats just below 1), so a
+ * FloatPMF only suits small PMFs or short lifetimes. Entries whose probability is below about
+ * 2^-24 can be lost entirely. The total lambda of the rounding (the statistic SpoofingPMF bounds,
+ * see SpoofingLimits) is computed when the PMF is built. Use getLambda() to decide whether the
+ * rounding is acceptable for a lifetime (ProbMassFunctions does this for you).
+ *
+ * As a CumulativePMF, range and masked draws and drawCounts follow the rounded probabilities,
+ * exactly like getSample does.
+ */
+public class FloatPMF implements CumulativePMF, Serializable {
+
+	/** The CMF of the input distribution, rounded to floats (the last entry is exactly 1). */
+	private final float[] cummulativeMassFunction;
+
+	/** Chan-Asau hints (null when searching the CMF instead). */
+	private final int[] hintTable;
+
+	/** The total lambda of the rounding. */
+	private final double lambda;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights), rounded to float precision
+	 * @param useHints - True to add a hint table (4 more bytes per entry, constant time draws),
+	 * false to binary search (logarithmic time draws)
+	 */
+	public FloatPMF(double[] weights, boolean useHints) {
+
+		long start = System.nanoTime();
+		double[] cmf = Util.buildCMF(weights);
+
+		this.cummulativeMassFunction = new float[cmf.length];
+		double error = 0;
+		for (int i = 0; i < cmf.length; i++) {
+			cummulativeMassFunction[i] = (float) cmf[i];
+
+			double p = cmf[i] - ((i > 0) ? cmf[i - 1] : 0);
+			double q = (double) cummulativeMassFunction[i]
+					- ((i > 0) ? (double) cummulativeMassFunction[i - 1] : 0);
+			error += Util.lambdaTerm(p, q);
+		}
+		this.lambda = error;
+
+		if (useHints) {
+			this.hintTable = new int[cmf.length];
+			double n = (double) cmf.length;
+			int currentNum = 0;
+			for (int j = 0; j < hintTable.length; j++) {
+				double point = ((double) j) / n;
+				while (cummulativeMassFunction[currentNum] < point) {
+					currentNum++;
+				}
+				hintTable[j] = currentNum;
+			}
+		} else {
+			this.hintTable = null;
+		}
+
+		PMFMetrics.pmfBuilt("FloatPMF", cmf.length, (useHints ? 8L : 4L) * cmf.length,
+				System.nanoTime() - start);
+	}
+
+
+	/** @return - The total lambda (see SpoofingLimits) caused by rounding the CMF. */
+	public double getLambda() {
+		return lambda;
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		float[] cmf = this.cummulativeMassFunction;
+
+		if (hintTable != null) {
+			int hint = hintTable[(int) (hintTable.length * uniformDraw)];
+			int currentNum = hint;
+			while (cmf[currentNum] < uniformDraw) {
+				currentNum++;
+			}
+			if (PMFMetrics.SAMPLE_WALKS) {
+				PMFMetrics.hintWalk("FloatPMF", currentNum - hint);
+			}
+			return currentNum;
+		}
+
+		//the branchless search of Util.lowerBound
+		int base = 0;
+		for (int len = cmf.length; len > 1; ) {
+			int half = len >>> 1;
+			base = (cmf[base + half - 1] < uniformDraw) ? base + half : base;
+			len -= half;
+		}
+		return (cmf[base] < uniformDraw) ? base + 1 : base;
+	}
+
+
+	@Override
+	public int size() {
+		return cummulativeMassFunction.length;
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return cummulativeMassFunction[outcome];
+	}
+
+
+	/** Search only the range, see CumulativePMF.getSample(double, int, int). */
+	@Override
+	public int getSample(double uniformDraw, int lo, int hi) {
+
+		float[] cmf = this.cummulativeMassFunction;
+		Util.checkSampleRange(lo, hi, cmf.length);
+		double point = Util.rescale(uniformDraw, (lo > 0) ? cmf[lo - 1] : 0, cmf[hi - 1]);
+
+		//the search of Util.lowerBound(cmf, lo, hi, point)
+		int base = lo;
+		for (int len = hi - lo; len > 1; ) {
+			int half = len >>> 1;
+			base = (cmf[base + half - 1] < point) ? base + half : base;
+			len -= half;
+		}
+		return base;
+	}
+}
@@ -0,0 +1,148 @@
+package probMass;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Sorts probabilities in descending order while keeping track of where each one came from,
+ * without allocating an object per entry. Each probability is packed, together with its original
+ * index, into a single long whose natural (ascending) order is the desired order. The packed keys
+ * are then sorted as primitives: by an LSD radix sort (linear time, one scratch array of the same
+ * size) or, in parallel, by Arrays.parallelSort.
+ *
+ * Ties are broken by original index, so the result matches a stable sort of the input.
+ */
+class IndexedSort {
+
+	/** The number of key bits each radix pass sorts by. */
+	private static final int RADIX_BITS = 11;
+
+	private static final int RADIX = 1 << RADIX_BITS;
+
+	/** The number of radix passes needed to cover a 63 bit key. */
+	private static final int RADIX_PASSES = (63 + RADIX_BITS - 1) / RADIX_BITS;
+
+	/** Below this many keys Arrays.sort is faster than the radix sort's fixed costs. */
+	private static final int MIN_RADIX_SORT = 4096;
+
+
+	/**
+	 * @param pValues - The (unsorted, non-negative) probabilities
+	 * @param parallel - True to sort with Arrays.parallelSort (uses the calling ForkJoinPool, or
+	 * the common pool when called from outside one), false to radix sort on this thread
+	 * @param sortedOut - Receives pValues in descending order
+	 * @param entriesOut - Receives the original index of each entry in sortedOut
+	 */
+	static void sortDescending(
+			double[] pValues, boolean parallel, double[] sortedOut, EntryTable entriesOut) {
+
+		int n = pValues.length;
+		int indexBits = EntryTable.bitsNeeded(n);
+		long indexMask = (1L << indexBits) - 1L;
+
+		//the top (64 - indexBits) bits order by descending pValue, the rest hold the index
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (descendingBits(pValues[i]) & ~indexMask) | i;
+		}
+
+		if (parallel) {
+			Arrays.parallelSort(keys);
+		} else if (n < MIN_RADIX_SORT) {
+			Arrays.sort(keys);
+		} else {
+			radixSort(keys);
+		}
+
+		//entries whose pValues only differ in the bits replaced by the index are not ordered yet
+		int groupStart = 0;
+		for (int i = 1; i <= n; i++) {
+			if (i == n || (keys[i] & ~indexMask) != (keys[groupStart] & ~indexMask)) {
+				if (i - groupStart > 1) {
+					sortGroup(pValues, keys, groupStart, i, indexBits, indexMask);
+				}
+				groupStart = i;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			int index = (int) (keys[i] & indexMask);
+			sortedOut[i] = pValues[index];
+			entriesOut.set(i, index);
+		}
+	}
+
+
+	/**
+	 * Sort non-negative keys with a least significant digit first radix sort. The counts for every
+	 * digit are gathered in one pass, and digits every key shares (e.g. the top exponent bits of
+	 * similar probabilities) are skipped.
+	 */
+	static void radixSort(long[] keys) {
+
+		int n = keys.length;
+		int[][] counts = new int[RADIX_PASSES][RADIX];
+		for (int i = 0; i < n; i++) {
+			long key = keys[i];
+			for (int pass = 0; pass < RADIX_PASSES; pass++) {
+				counts[pass][(int) (key >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+			}
+		}
+
+		long[] from = keys;
+		long[] to = new long[n];
+		for (int pass = 0; pass < RADIX_PASSES; pass++) {
+			int[] count = counts[pass];
+			int shift = pass * RADIX_BITS;
+			if (count[(int) (from[0] >>> shift) & (RADIX - 1)] == n) {
+				continue;
+			}
+
+			//turn the counts into the first position of each digit
+			int position = 0;
+			for (int digit = 0; digit < RADIX; digit++) {
+				int c = count[digit];
+				count[digit] = position;
+				position += c;
+			}
+
+			for (int i = 0; i < n; i++) {
+				long key = from[i];
+				to[count[(int) (key >>> shift) & (RADIX - 1)]++] = key;
+			}
+			long[] swap = from;
+			from = to;
+			to = swap;
+		}
+
+		if (from != keys) {
+			System.arraycopy(from, 0, keys, 0, n);
+		}
+	}
+
+
+	/**
+	 * Order a run of keys that share their high bits. Within the run only the low indexBits bits
+	 * of descendingBits() differ, so those bits and the index fit in one long together.
+	 */
+	private static void sortGroup(
+			double[] pValues, long[] keys, int from, int to, int indexBits, long indexMask) {
+
+		for (int i = from; i < to; i++) {
+			int index = (int) (keys[i] & indexMask);
+			keys[i] = ((descendingBits(pValues[index]) & indexMask) << indexBits) | index;
+		}
+		Arrays.sort(keys, from, to);
+	}
+
+
+	/**
+	 * @return - A non-negative long that is smaller for larger (non-negative) probabilities. The
+	 * bits of a non-negative double increase with its value, so they are subtracted from
+	 * Long.MAX_VALUE (adding 0.0 turns -0.0 into 0.0).
+	 */
+	private static long descendingBits(double pValue) {
+		return Long.MAX_VALUE - Double.doubleToLongBits(pValue + 0.0);
+	}
+}
@@ -0,0 +1,275 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A LifetimeAwarePMF is a SpoofingPMF that counts the draws it serves. A SpoofingPMF is only
+ * accurate for the lifetime it was built for, so once the count reaches half of that lifetime a
+ * new SpoofingPMF is built in the background for LIFETIME_GROWTH times as many draws and swapped
+ * in. Draws never wait for a rebuild: they keep using the current SpoofingPMF until the new one is
+ * ready. A service that cannot predict how many draws it will make can therefore start with a
+ * small (cheap) lifetime and stay within the statistical guarantee as it runs.
+ *
+ * The draws are counted in a LongAdder, so threads sampling at once do not contend on one counter.
+ * The count is compared to the lifetime on about one draw in CHECK_INTERVAL (chosen at random,
+ * which is cheaper than reading the LongAdder on every draw). A LifetimeAwarePMF keeps a copy of
+ * the weights to rebuild from, 8 bytes per entry on top of the SpoofingPMF.
+ *
+ * A rebuild that fails (it throws, runs out of memory or the pool rejects it) is reported to
+ * PMFListener.rebuildFailed and is not retried for the same lifetime. Later rebuilds aim halfway
+ * between the current lifetime and the smallest one that failed, and stop once that would grow
+ * the lifetime by less than 1 / LIFETIME_GROWTH. Draws keep using the current SpoofingPMF
+ * throughout, even past its lifetime.
+ */
+public class LifetimeAwarePMF implements ProbMassFunction, Serializable {
+
+	/** Each rebuild supports this many times as many draws as the SpoofingPMF it replaces. */
+	public static final long LIFETIME_GROWTH = 4;
+
+	/** The largest number of draws between two checks of the count. */
+	private static final int CHECK_INTERVAL = 1024;
+
+	/** The weights every SpoofingPMF is built from. */
+	private final double[] weights;
+
+	/** The pool that rebuilds run in (null to use the common pool, building on one thread). */
+	private final transient ForkJoinPool pool;
+
+	/** The number of draws made so far. */
+	private final LongAdder draws = new LongAdder();
+
+	/** True while a rebuild is running (never in a deserialized copy, see readObject). */
+	private transient AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+	/** The smallest lifetime a rebuild failed to build (0 while none has failed). */
+	private transient volatile long failedLifetime = 0;
+
+	/** The SpoofingPMF that draws are made from. */
+	private volatile Generation current;
+
+
+	/**
+	 * Build a LifetimeAwarePMF.
+	 *
+	 * @param lifetime - How many random draws the first SpoofingPMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public LifetimeAwarePMF(long lifetime, double[] weights) {
+		this(lifetime, weights, null);
+	}
+
+
+	/**
+	 * Build a LifetimeAwarePMF whose SpoofingPMFs are built in parallel.
+	 *
+	 * @param lifetime - How many random draws the first SpoofingPMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 * @param pool - The ForkJoinPool that builds and rebuilds the SpoofingPMFs (null to build the
+	 * first one on the calling thread and later ones on one thread of the common pool)
+	 */
+	public LifetimeAwarePMF(long lifetime, double[] weights, ForkJoinPool pool) {
+		this.weights = weights.clone();
+		this.pool = pool;
+		this.current = new Generation(new SpoofingPMF(lifetime, this.weights, pool), lifetime);
+	}
+
+
+	/** @return - The number of draws made so far. */
+	public long getDraws() {
+		return draws.sum();
+	}
+
+
+	/** @return - The number of draws the current SpoofingPMF supports (counted from the first). */
+	public long getLifetime() {
+		return current.lifetime;
+	}
+
+
+	/** @return - The SpoofingPMF that draws are currently made from. */
+	public SpoofingPMF getCurrentPMF() {
+		return current.pmf;
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+		Generation gen = count(1);
+		return gen.pmf.getSample(uniformDraw);
+	}
+
+
+	/** See ProbMassFunction.getSample(long). */
+	@Override
+	public int getSample(long randomBits) {
+		Generation gen = count(1);
+		return gen.pmf.getSample(randomBits);
+	}
+
+
+	/** See ProbMassFunction.getSample(int). */
+	@Override
+	public int getSample(int randomBits) {
+		Generation gen = count(1);
+		return gen.pmf.getSample(randomBits);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+		Generation gen = count(uniformDraws.length);
+		gen.pmf.sample(uniformDraws, out);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+		Generation gen = count(to - from);
+		gen.pmf.sample(rng, out, from, to);
+	}
+
+
+	/** See ProbMassFunction.drawCounts(long, RandomGenerator, CountConsumer). */
+	@Override
+	public void drawCounts(long m, RandomGenerator rng, CountConsumer counts) {
+		Util.checkDrawCount(m);
+		Generation gen = count(m);
+		gen.pmf.drawCounts(m, rng, counts);
+	}
+
+
+	/** See ProbMassFunction.drawCounts(long, RandomGenerator). */
+	@Override
+	public long[] drawCounts(long m, RandomGenerator rng) {
+		Util.checkDrawCount(m);
+		Generation gen = count(m);
+		return gen.pmf.drawCounts(m, rng);
+	}
+
+
+	/**
+	 * Count some draws, and check whether a rebuild is due (always for a batch, about once every
+	 * CHECK_INTERVAL draws otherwise).
+	 *
+	 * @return - The generation the draws should be made from
+	 */
+	private Generation count(long numDraws) {
+		Generation gen = this.current;
+		draws.add(numDraws);
+
+		if (numDraws > 1 || (ThreadLocalRandom.current().nextInt() & gen.checkMask) == 0) {
+			if (draws.sum() >= gen.rebuildAt && rebuilding.compareAndSet(false, true)) {
+				//gen may have been replaced since this draw started
+				if (current == gen) {
+					startRebuild(gen);
+				} else {
+					rebuilding.set(false);
+				}
+			}
+		}
+		return gen;
+	}
+
+
+	/** Build the next generation in the background and swap it in when it is done. */
+	private void startRebuild(Generation gen) {
+
+		//grow from the draw count if draws have outrun the lifetime
+		long base = Math.max(gen.lifetime, draws.sum());
+		long grown = (base > Long.MAX_VALUE / LIFETIME_GROWTH)
+				? Long.MAX_VALUE
+				: base * LIFETIME_GROWTH;
+
+		//never retry a lifetime that failed, back off halfway towards it instead
+		long failed = failedLifetime;
+		if (failed != 0 && grown >= failed) {
+			long halfway = (failed > base) ? base + (failed - base) / 2 : base;
+			if (halfway - base < base / LIFETIME_GROWTH) {
+				rebuilding.set(false);
+				return;
+			}
+			grown = halfway;
+		}
+		long lifetime = grown;
+
+		ForkJoinPool executor = (pool == null) ? ForkJoinPool.commonPool() : pool;
+		try {
+			executor.execute(() -> {
+				try {
+					current = new Generation(new SpoofingPMF(lifetime, weights, pool), lifetime);
+				} catch (RuntimeException | OutOfMemoryError e) {
+					rebuildFailed(lifetime, e);
+				} finally {
+					rebuilding.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			rebuildFailed(lifetime, e);
+			rebuilding.set(false);
+		}
+	}
+
+
+	/** Remember the failed lifetime (only one rebuild runs at a time) and report it. */
+	private void rebuildFailed(long lifetime, Throwable cause) {
+		long failed = failedLifetime;
+		failedLifetime = (failed == 0) ? lifetime : Math.min(failed, lifetime);
+		PMFMetrics.rebuildFailed(lifetime, cause);
+	}
+
+
+	/** A deserialized copy has no rebuild running, and may retry lifetimes that failed. */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.rebuilding = new AtomicBoolean(false);
+	}
+
+
+	/** One SpoofingPMF and the lifetime it was built for. */
+	private static class Generation implements Serializable {
+
+		final SpoofingPMF pmf;
+
+		/** The number of draws (counted from the first) pmf supports. */
+		final long lifetime;
+
+		/** A rebuild starts once this many draws have been made. */
+		final long rebuildAt;
+
+		/** The count is checked on a draw when (a random int & checkMask) is 0. */
+		final int checkMask;
+
+
+		Generation(SpoofingPMF pmf, long lifetime) {
+			this.pmf = pmf;
+			this.lifetime = lifetime;
+			this.rebuildAt = lifetime / 2;
+
+			//check often enough that a rebuild starts long before the lifetime runs out
+			long interval = Math.max(1, Math.min(CHECK_INTERVAL, lifetime / (4L * CHECK_INTERVAL)));
+			this.checkMask = Integer.highestOneBit((int) interval) - 1;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package probMass;
+
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A LongProbMassFunction is a ProbMassFunction that may have more than 2^31 outcomes, so samples
+ * are returned as longs. The implementations keep their tables off the Java heap (see
+ * ProbMassFunctions.highSpeedOffHeapPMF), which also keeps very large tables out of the garbage
+ * collector's way.
+ *
+ * Like ProbMassFunction, the implementations are never modified after construction and may be
+ * sampled from any number of threads at once.
+ */
+public interface LongProbMassFunction {
+
+	/** @return - The number of outcomes, every sample is between 0 and (size() - 1). */
+	public long size();
+
+
+	/**
+	 * @param uniformRandomDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return - A sample from the PMF that corresponds to the input uniform random number.
+	 */
+	public long getSample(double uniformRandomDraw);
+
+
+	/**
+	 * Fill part of an array with samples, drawing the uniform random numbers from rng.
+	 *
+	 * @param rng - The source of uniform random numbers
+	 * @param out - Receives the samples
+	 * @param from - The first index of out to fill (inclusive)
+	 * @param to - The last index of out to fill (exclusive)
+	 */
+	public default void sample(RandomGenerator rng, long[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		for (int i = from; i < to; i++) {
+			out[i] = getSample(rng.nextDouble());
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package probMass;
+
+
+import java.util.Objects;
+
+
+/** A BinarySearchPMF whose CMF is read from a memory-mapped file (see PMFFiles). */
+final class MappedBinarySearchPMF extends MappedPMF implements CumulativePMF {
+
+	/** The CMF of the input distribution. */
+	private final OffHeapArray cummMassFun;
+
+
+	MappedBinarySearchPMF(String file, OffHeapArray cummMassFun) {
+		super(file);
+		this.cummMassFun = cummMassFun;
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		//the same branchless search as Util.lowerBound, so samples match BinarySearchPMF
+		long base = 0;
+		for (long len = cummMassFun.length(); len > 1; ) {
+			long half = len >>> 1;
+			base = (cummMassFun.getDouble(base + half - 1) < uniformDraw) ? base + half : base;
+			len -= half;
+		}
+		return (int) ((cummMassFun.getDouble(base) < uniformDraw) ? base + 1 : base);
+	}
+
+
+	@Override
+	public int size() {
+		return (int) cummMassFun.length();
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return cummMassFun.getDouble(Objects.checkIndex(outcome, size()));
+	}
+}
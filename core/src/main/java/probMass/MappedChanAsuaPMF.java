@@ -0,0 +1,62 @@
+package probMass;
+
+
+import java.util.Objects;
+
+
+/** A ChanAsuaPMF whose CMF and hint table are read from a memory-mapped file (see PMFFiles). */
+final class MappedChanAsuaPMF extends MappedPMF implements CumulativePMF {
+
+	/** The CMF of the input distribution. */
+	private final OffHeapArray cummulativeMassFunction;
+
+	/** A series of hints that will speed up taking samples. */
+	private final OffHeapArray hintTable;
+
+	/** The number of hints, as a double to match ChanAsuaPMF's arithmetic. */
+	private final double numHints;
+
+
+	MappedChanAsuaPMF(String file, OffHeapArray cummulativeMassFunction, OffHeapArray hintTable) {
+		super(file);
+		this.cummulativeMassFunction = cummulativeMassFunction;
+		this.hintTable = hintTable;
+		this.numHints = (double) hintTable.length();
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		//get the hint
+		int hint = hintTable.getInt((long) (numHints * uniformDraw));
+
+		//walk up the table until you are done
+		long currentNum = hint;
+		while (cummulativeMassFunction.getDouble(currentNum) < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("MappedChanAsuaPMF", (int) (currentNum - hint));
+		}
+
+		return (int) currentNum;
+	}
+
+
+	@Override
+	public int size() {
+		return (int) cummulativeMassFunction.length();
+	}
+
+
+	@Override
+	public double getCumulativeProbability(int outcome) {
+		return cummulativeMassFunction.getDouble(Objects.checkIndex(outcome, size()));
+	}
+}
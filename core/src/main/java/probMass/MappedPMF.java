@@ -0,0 +1,54 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.file.Path;
+
+
+/**
+ * The base of every ProbMassFunction returned by PMFFiles.map(). The tables live in the mapped
+ * file, so serializing a mapped PMF only records the file's path and deserializing it maps the
+ * file again.
+ */
+abstract class MappedPMF implements ProbMassFunction {
+
+	/** The absolute path of the mapped file. */
+	private final String file;
+
+
+	MappedPMF(String file) {
+		this.file = file;
+	}
+
+
+	/** Serialize the path instead of the (unserializable) mappings. */
+	protected Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(file);
+	}
+
+
+	/** Stands in for a MappedPMF in a serialized stream. */
+	private static class SerializedForm implements Serializable {
+
+		private final String file;
+
+
+		SerializedForm(String file) {
+			this.file = file;
+		}
+
+
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				return PMFFiles.map(Path.of(file));
+			} catch (IOException e) {
+				InvalidObjectException ex = new InvalidObjectException("Cannot map " + file);
+				ex.initCause(e);
+				throw ex;
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Objects;
+
+
+/**
+ * A PMFBank whose tables are read from a memory-mapped file (see PMFFiles.mapBank). Like
+ * MappedPMF, serializing it only records the file's path.
+ */
+final class MappedPMFBank implements PMFBank, Serializable {
+
+	/** The absolute path of the mapped file. */
+	private final String file;
+
+	private final transient OffHeapArray offsets;
+
+	private final transient OffHeapArray cmf;
+
+	private final transient OffHeapArray hints;
+
+
+	MappedPMFBank(String file, OffHeapArray offsets, OffHeapArray cmf, OffHeapArray hints) {
+		this.file = file;
+		this.offsets = offsets;
+		this.cmf = cmf;
+		this.hints = hints;
+	}
+
+
+	/** @return - The absolute path of the mapped file. */
+	String getFile() {
+		return file;
+	}
+
+
+	@Override
+	public int size() {
+		return (int) offsets.length() - 1;
+	}
+
+
+	@Override
+	public int size(int pmfId) {
+		Objects.checkIndex(pmfId, size());
+		return offsets.getInt(pmfId + 1) - offsets.getInt(pmfId);
+	}
+
+
+	@Override
+	public int getSample(int pmfId, double uniformDraw) {
+
+		Objects.checkIndex(pmfId, size());
+		int start = offsets.getInt(pmfId);
+		int n = offsets.getInt(pmfId + 1) - start;
+
+		int hint = hints.getInt(start + (int) (n * uniformDraw));
+		long currentNum = hint;
+		while (cmf.getDouble(currentNum) < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("MappedPMFBank", (int) (currentNum - hint));
+		}
+
+		return (int) currentNum - start;
+	}
+
+
+	/** Serialize the path instead of the (unserializable) mappings. */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(file);
+	}
+
+
+	/** Stands in for a MappedPMFBank in a serialized stream. */
+	private static class SerializedForm implements Serializable {
+
+		private final String file;
+
+
+		SerializedForm(String file) {
+			this.file = file;
+		}
+
+
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				return PMFFiles.mapBank(Path.of(file));
+			} catch (IOException e) {
+				InvalidObjectException ex = new InvalidObjectException("Cannot map " + file);
+				ex.initCause(e);
+				throw ex;
+			}
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package probMass;
+
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A SpoofingPMF whose bins and entry table are read from a memory-mapped file (see PMFFiles).
+ * getSample(double), getSample(long), the batch sample methods and drawCounts give the same results
+ * as the SpoofingPMF that was written. The build statistics (getLambda, getNumBins, ...) are not
+ * stored in the file, so they are not available here.
+ */
+final class MappedSpoofingPMF extends MappedPMF {
+
+	/** The Cumulative Mass Function built from the Bins. */
+	private final OffHeapArray binCMF;
+
+	/** The interpolated probability of the left most (greatest) entry in each bin. */
+	private final OffHeapArray binFirstQ;
+
+	/** The slope of each bin's interpolating line. */
+	private final OffHeapArray binSlope;
+
+	/** The hint table built for the binCMF. */
+	private final OffHeapArray hintTable;
+
+	/** The number of entries in each bin. */
+	private final OffHeapArray binSize;
+
+	/** The sorted position of each bin's left most entry. */
+	private final OffHeapArray binStart;
+
+	/** Maps sorted positions to the original order (null when the input was presorted). */
+	private final OffHeapArray entries;
+
+	/** The number of outcomes. */
+	private final int N;
+
+	/** The width of each entry (16 and 32 are shorts and ints, others are packed into longs). */
+	private final int entryBits;
+
+	private final long entryMask;
+
+	/** The number of hints, as a double to match SpoofingPMF's arithmetic. */
+	private final double numHints;
+
+
+	MappedSpoofingPMF(String file, OffHeapArray binCMF, OffHeapArray binFirstQ,
+			OffHeapArray binSlope, OffHeapArray hintTable, OffHeapArray binSize,
+			OffHeapArray binStart, OffHeapArray entries, int entryBits, int outcomes) {
+		super(file);
+		this.N = outcomes;
+		this.binCMF = binCMF;
+		this.binFirstQ = binFirstQ;
+		this.binSlope = binSlope;
+		this.hintTable = hintTable;
+		this.binSize = binSize;
+		this.binStart = binStart;
+		this.entries = entries;
+		this.entryBits = entryBits;
+		this.entryMask = (1L << entryBits) - 1L;
+		this.numHints = (double) hintTable.length();
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+
+		//get the hint
+		int hint = hintTable.getInt((long) (numHints * uniformDraw));
+
+		//walk up the table until you are done
+		int currentNum = hint;
+		while (binCMF.getDouble(currentNum) < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("MappedSpoofingPMF", currentNum - hint);
+		}
+
+		//transform the uniformDraw into another U(0,1) quantity
+		double binMin = (currentNum > 0) ? binCMF.getDouble(currentNum - 1) : 0;
+		double binMax = binCMF.getDouble(currentNum);
+		double newUniform = (uniformDraw - binMin) / (binMax - binMin);
+
+		return sampleBin(currentNum, newUniform);
+	}
+
+
+	/**
+	 * The top 32 bits pick the bin, the low 32 bits pick the entry within it, see
+	 * SpoofingPMF.getSample(long).
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(long randomBits) {
+
+		long highBits = randomBits >>> 32;
+		int hint = hintTable.getInt((highBits * hintTable.length()) >>> 32);
+
+		double uniformDraw = highBits * 0x1.0p-32;
+		int currentNum = hint;
+		while (binCMF.getDouble(currentNum) < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("MappedSpoofingPMF", currentNum - hint);
+		}
+
+		return sampleBin(currentNum, (int) randomBits);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		for (int i = 0; i < uniformDraws.length; i++) {
+			out[i] = getSample(uniformDraws[i]);
+		}
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		for (int i = from; i < to; i++) {
+			out[i] = getSample(rng.nextDouble());
+		}
+	}
+
+
+	/** Split the draws between the bins and then within them, see SpoofingPMF.drawCounts. */
+	@Override
+	public void drawCounts(long m, RandomGenerator rng, CountConsumer counts) {
+		Util.checkDrawCount(m);
+
+		Util.splitCounts(rng, m, 0, (int) binCMF.length(),
+				(lo, hi) -> binCMF.getDouble(hi - 1) - ((lo > 0) ? binCMF.getDouble(lo - 1) : 0),
+				(bin, binDraws) -> {
+					double firstQ = binFirstQ.getDouble(bin);
+					double slope = binSlope.getDouble(bin);
+
+					//the line sums to (hi - lo) * firstQ + slope * (lo + ... + (hi - 1))
+					Util.splitCounts(rng, binDraws, 0, binSize.getInt(bin),
+							(lo, hi) -> (hi - lo) * (firstQ + slope * (lo + hi - 1) * 0.5),
+							(index, count) -> counts.accept(entry(bin, index), count));
+				});
+	}
+
+
+	/** Split the draws over the bins, see drawCounts(long, RandomGenerator, CountConsumer). */
+	@Override
+	public long[] drawCounts(long m, RandomGenerator rng) {
+		long[] counts = new long[N];
+		drawCounts(m, rng, (outcome, count) -> counts[outcome] = count);
+		return counts;
+	}
+
+
+	/** Return a properly distributed original entry from a bin, see SpoofingPMF.sampleBin. */
+	private int sampleBin(int bin, double uniformDraw) {
+
+		int n = binSize.getInt(bin);
+		double slope = binSlope.getDouble(bin);
+		double firstQ = binFirstQ.getDouble(bin);
+
+		//when Bin is exact don't use stacking
+		if (n == 2) {
+			double q1 = firstQ;
+			double q2 = q1 + slope;
+
+			if (uniformDraw < q1 / (q1 + q2)) {
+				return entry(bin, 0);
+			} else {
+				return entry(bin, 1);
+			}
+		}
+
+		//when Bin is flat return results directly
+		if (slope == 0) {
+			return entry(bin, (int) (uniformDraw * n));
+		}
+
+		//no special case found....
+		int columnNum = (int) (uniformDraw * (n / 2.0));	//btw 0 and floor(n/2)
+
+		int candidate1 = columnNum;
+		int candidate2 = n - columnNum - 1;
+
+		double q1 = firstQ + slope * candidate1;
+		double q2 = firstQ + slope * candidate2;
+
+		double minDraw = (2.0 * columnNum) / n;
+		double maxDraw = Math.min(1.0, 2.0 * (((double) columnNum) + 1.0) / n);
+
+		double reRandom = (maxDraw - uniformDraw) / (maxDraw - minDraw);
+
+		if (reRandom < q1 / (q1 + q2)) {
+			return entry(bin, candidate1);
+		} else {
+			return entry(bin, candidate2);
+		}
+	}
+
+
+	/** Return an entry from a bin using 32 random bits, see SpoofingPMF.sampleBin(int, int). */
+	private int sampleBin(int bin, int randomBits) {
+
+		int n = binSize.getInt(bin);
+		double slope = binSlope.getDouble(bin);
+		double firstQ = binFirstQ.getDouble(bin);
+		long bits = randomBits & 0xFFFFFFFFL;
+
+		//when Bin is exact don't use stacking
+		if (n == 2) {
+			double q1 = firstQ;
+			double q2 = q1 + slope;
+
+			return (bits * 0x1.0p-32 * (q1 + q2) < q1) ? entry(bin, 0) : entry(bin, 1);
+		}
+
+		long scaled = bits * n;
+		int slot = (int) (scaled >>> 32);
+
+		//when Bin is flat return results directly
+		if (slope == 0) {
+			return entry(bin, slot);
+		}
+
+		//column j covers slots 2j and 2j + 1 (the middle column of an odd bin has one slot)
+		int columnNum = slot >>> 1;
+		double withinColumn = ((slot & 1) + (scaled & 0xFFFFFFFFL) * 0x1.0p-32) * 0.5;
+
+		int candidate1 = columnNum;
+		int candidate2 = n - columnNum - 1;
+
+		double q1 = firstQ + slope * candidate1;
+		double q2 = firstQ + slope * candidate2;
+
+		return (withinColumn * (q1 + q2) < q1) ? entry(bin, candidate1) : entry(bin, candidate2);
+	}
+
+
+	/** @return - The original index of the entry at this position within a bin. */
+	private int entry(int bin, int index) {
+
+		long position = (long) binStart.getInt(bin) + index;
+
+		if (entries == null) {
+			return (int) position;
+		} else if (entryBits == 16) {
+			return entries.getUnsignedShort(position);
+		} else if (entryBits == 32) {
+			return entries.getInt(position);
+		}
+
+		//packed, the same layout as EntryTable.PackedEntries
+		long bitIndex = position * entryBits;
+		long word = bitIndex >>> 6;
+		int shift = (int) (bitIndex & 63);
+
+		long value = entries.getLong(word) >>> shift;
+		if (shift + entryBits > 64) {
+			value |= entries.getLong(word + 1) << (64 - shift);
+		}
+
+		return (int) (value & entryMask);
+	}
+}
@@ -0,0 +1,131 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * A little-endian array of primitives that lives outside the Java heap, either in a memory-mapped
+ * file or in direct memory. A single buffer is limited to 2GB, so large arrays are split into
+ * several chunks and addressed with long indices. Off-heap arrays are not scanned by the garbage
+ * collector, and can hold more than 2^31 elements.
+ */
+final class OffHeapArray {
+
+	/** Each chunk maps 2^30 bytes, a multiple of every element size so no element straddles two. */
+	private static final int CHUNK_SHIFT = 30;
+
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1L;
+
+	/** The mapped chunks, in order. */
+	private final ByteBuffer[] chunks;
+
+	/** The number of elements. */
+	private final long length;
+
+
+	private OffHeapArray(ByteBuffer[] chunks, long length) {
+		this.chunks = chunks;
+		this.length = length;
+	}
+
+
+	/**
+	 * Allocate a zeroed array in direct memory (see -XX:MaxDirectMemorySize). The memory is
+	 * released when the array becomes unreachable.
+	 *
+	 * @param length - The number of elements
+	 * @param elementBytes - The size of each element (2, 4 or 8)
+	 *
+	 * @return - A new array
+	 */
+	static OffHeapArray allocate(long length, int elementBytes) {
+
+		long bytes = length * elementBytes;
+		int numChunks = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+		ByteBuffer[] chunks = new ByteBuffer[Math.max(1, numChunks)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long) i << CHUNK_SHIFT;
+			int size = (int) Math.min(bytes - start, 1L << CHUNK_SHIFT);
+			chunks[i] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return new OffHeapArray(chunks, length);
+	}
+
+
+	/**
+	 * Map part of a file (read only).
+	 *
+	 * @param channel - An open channel to the file, the mapping stays valid after it is closed
+	 * @param offset - The file position of the first element
+	 * @param length - The number of elements
+	 * @param elementBytes - The size of each element (2, 4 or 8)
+	 *
+	 * @return - A view of the elements
+	 */
+	static OffHeapArray map(FileChannel channel, long offset, long length, int elementBytes)
+			throws IOException {
+
+		long bytes = length * elementBytes;
+		int numChunks = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+		ByteBuffer[] chunks = new ByteBuffer[Math.max(1, numChunks)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long) i << CHUNK_SHIFT;
+			long size = Math.min(bytes - start, 1L << CHUNK_SHIFT);
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, size)
+					.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return new OffHeapArray(chunks, length);
+	}
+
+
+	/** @return - The number of elements. */
+	long length() {
+		return length;
+	}
+
+
+	double getDouble(long index) {
+		long position = index << 3;
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getDouble((int) (position & CHUNK_MASK));
+	}
+
+
+	long getLong(long index) {
+		long position = index << 3;
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+	}
+
+
+	void setDouble(long index, double value) {
+		long position = index << 3;
+		chunks[(int) (position >>> CHUNK_SHIFT)].putDouble((int) (position & CHUNK_MASK), value);
+	}
+
+
+	void setLong(long index, long value) {
+		long position = index << 3;
+		chunks[(int) (position >>> CHUNK_SHIFT)].putLong((int) (position & CHUNK_MASK), value);
+	}
+
+
+	int getInt(long index) {
+		long position = index << 2;
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+	}
+
+
+	/** @return - The element read as an unsigned 16 bit number. */
+	int getUnsignedShort(long index) {
+		long position = index << 1;
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getShort((int) (position & CHUNK_MASK))
+				& 0xFFFF;
+	}
+}
@@ -0,0 +1,53 @@
+package probMass;
+
+
+import java.util.function.LongToDoubleFunction;
+
+
+/**
+ * A BinarySearchPMF whose CMF is stored off the Java heap, so it can hold more than 2^31 entries
+ * (8 bytes per entry of direct memory, see -XX:MaxDirectMemorySize).
+ */
+public class OffHeapBinarySearchPMF implements LongProbMassFunction {
+
+	/** The CMF of the input distribution. */
+	private final OffHeapArray cummMassFun;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param n - The number of weights
+	 * @param weights - Supplies weight i, each i will be drawn with prob (weights(i) / sum)
+	 */
+	public OffHeapBinarySearchPMF(long n, LongToDoubleFunction weights) {
+		long start = System.nanoTime();
+		this.cummMassFun = Util.buildCMF(n, weights);
+		PMFMetrics.pmfBuilt("OffHeapBinarySearchPMF", n, 8L * n, System.nanoTime() - start);
+	}
+
+
+	@Override
+	public long size() {
+		return cummMassFun.length();
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (size() - 1)
+	 */
+	@Override
+	public long getSample(double uniformDraw) {
+
+		//the branchless search of Util.lowerBound
+		long base = 0;
+		for (long len = cummMassFun.length(); len > 1; ) {
+			long half = len >>> 1;
+			base = (cummMassFun.getDouble(base + half - 1) < uniformDraw) ? base + half : base;
+			len -= half;
+		}
+		return (cummMassFun.getDouble(base) < uniformDraw) ? base + 1 : base;
+	}
+}
@@ -0,0 +1,79 @@
+package probMass;
+
+
+import java.util.function.LongToDoubleFunction;
+
+
+/**
+ * A ChanAsuaPMF whose CMF and hint table are stored off the Java heap, so it can hold more than
+ * 2^31 entries. Hints are longs, so it uses 16 bytes per entry of direct memory (see
+ * -XX:MaxDirectMemorySize).
+ */
+public class OffHeapChanAsuaPMF implements LongProbMassFunction {
+
+	/** The CMF of the input distribution. */
+	private final OffHeapArray cummulativeMassFunction;
+
+	/** A series of hints that will speed up taking samples. */
+	private final OffHeapArray hintTable;
+
+	/** The number of hints. */
+	private final double numHints;
+
+
+	/**
+	 * Build an object that can quickly (and repeatedly) draw samples from the given set of weights
+	 *
+	 * @param n - The number of weights
+	 * @param weights - Supplies weight i, each i will be drawn with prob (weights(i) / sum)
+	 */
+	public OffHeapChanAsuaPMF(long n, LongToDoubleFunction weights) {
+
+		long start = System.nanoTime();
+		this.cummulativeMassFunction = Util.buildCMF(n, weights);
+		this.hintTable = OffHeapArray.allocate(n, 8);
+		this.numHints = (double) n;
+
+		//the hints increase with i, so one forward pass over the CMF finds every hint
+		long currentNum = 0;
+		for (long i = 0; i < n; i++) {
+			double point = ((double) i) / numHints;
+			while (cummulativeMassFunction.getDouble(currentNum) < point) {
+				currentNum++;
+			}
+			hintTable.setLong(i, currentNum);
+		}
+
+		PMFMetrics.pmfBuilt("OffHeapChanAsuaPMF", n, 16L * n, System.nanoTime() - start);
+	}
+
+
+	@Override
+	public long size() {
+		return cummulativeMassFunction.length();
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (size() - 1)
+	 */
+	@Override
+	public long getSample(double uniformDraw) {
+
+		//get the hint
+		long hint = hintTable.getLong((long) (numHints * uniformDraw));
+
+		//walk up the table until you are done
+		long currentNum = hint;
+		while (cummulativeMassFunction.getDouble(currentNum) < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("OffHeapChanAsuaPMF", (int) (currentNum - hint));
+		}
+
+		return currentNum;
+	}
+}
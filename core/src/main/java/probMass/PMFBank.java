@@ -0,0 +1,133 @@
+package probMass;
+
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A PMFBank holds many independent probability mass functions (e.g. one per user, or one per row
+ * of a transition matrix) in a few shared primitive arrays instead of one ProbMassFunction object,
+ * with its own arrays and object headers, per distribution. Each distribution is sampled like a
+ * ChanAsuaPMF (a hint and a short walk), and costs 12 bytes per entry plus a 4 byte offset.
+ *
+ * Banks are built with a PMFBankBuilder, and can be saved and memory-mapped as one file (see
+ * PMFFiles). Like ProbMassFunction, the implementations are never modified after construction and
+ * may be sampled from any number of threads at once.
+ */
+public interface PMFBank {
+
+	/** @return - The number of distributions, pmfIds are between 0 and (size() - 1). */
+	public int size();
+
+
+	/** @return - The number of outcomes of one distribution. */
+	public int size(int pmfId);
+
+
+	/**
+	 * @param pmfId - The distribution to sample (an IndexOutOfBoundsException is thrown if it is
+	 * not between 0 and (size() - 1), here and in every sample method)
+	 * @param uniformRandomDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return - A sample between 0 and (size(pmfId) - 1)
+	 */
+	public int getSample(int pmfId, double uniformRandomDraw);
+
+
+	/**
+	 * Draw one sample per uniform from the same distribution.
+	 *
+	 * @param pmfId - The distribution to sample
+	 * @param uniformRandomDraws - Uniformly distributed random numbers between 0 and 1
+	 * @param out - Receives one sample per entry of uniformRandomDraws
+	 */
+	public default void sample(int pmfId, double[] uniformRandomDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformRandomDraws.length, out.length);
+
+		for (int i = 0; i < uniformRandomDraws.length; i++) {
+			out[i] = getSample(pmfId, uniformRandomDraws[i]);
+		}
+	}
+
+
+	/**
+	 * Draw one sample per uniform, each from its own distribution (e.g. one step of many Markov
+	 * chains).
+	 *
+	 * @param pmfIds - The distribution to sample for each uniform
+	 * @param uniformRandomDraws - Uniformly distributed random numbers between 0 and 1
+	 * @param out - Receives one sample per entry of uniformRandomDraws
+	 */
+	public default void sample(int[] pmfIds, double[] uniformRandomDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformRandomDraws.length, pmfIds.length);
+		Objects.checkFromToIndex(0, uniformRandomDraws.length, out.length);
+
+		for (int i = 0; i < uniformRandomDraws.length; i++) {
+			out[i] = getSample(pmfIds[i], uniformRandomDraws[i]);
+		}
+	}
+
+
+	/**
+	 * Fill part of an array with samples from one distribution, drawing the uniform random numbers
+	 * from rng.
+	 *
+	 * @param pmfId - The distribution to sample
+	 * @param rng - The source of uniform random numbers
+	 * @param out - Receives the samples
+	 * @param from - The first index of out to fill (inclusive)
+	 * @param to - The last index of out to fill (exclusive)
+	 */
+	public default void sample(int pmfId, RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		for (int i = from; i < to; i++) {
+			out[i] = getSample(pmfId, rng.nextDouble());
+		}
+	}
+
+
+	/**
+	 * @param pmfId - A distribution in this bank
+	 *
+	 * @return - A ProbMassFunction that samples the distribution (a view, nothing is copied)
+	 */
+	public default ProbMassFunction asPMF(int pmfId) {
+		Objects.checkIndex(pmfId, size());
+		return new BankedPMF(this, pmfId);
+	}
+
+
+	/** One distribution of a PMFBank, see asPMF(). */
+	static final class BankedPMF implements ProbMassFunction {
+
+		private final PMFBank bank;
+
+		private final int pmfId;
+
+
+		BankedPMF(PMFBank bank, int pmfId) {
+			this.bank = bank;
+			this.pmfId = pmfId;
+		}
+
+
+		@Override
+		public int getSample(double uniformRandomDraw) {
+			return bank.getSample(pmfId, uniformRandomDraw);
+		}
+
+
+		@Override
+		public void sample(double[] uniformRandomDraws, int[] out) {
+			bank.sample(pmfId, uniformRandomDraws, out);
+		}
+
+
+		@Override
+		public void sample(RandomGenerator rng, int[] out, int from, int to) {
+			bank.sample(pmfId, rng, out, from, to);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package probMass;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Builds a PMFBank one distribution at a time. Each distribution's CMF and hints are appended to
+ * shared growing arrays as it is added, so building never holds an object per distribution.
+ *
+ * A PMFBankBuilder is not thread safe. build() may be called more than once, each bank holds the
+ * distributions added so far.
+ */
+public final class PMFBankBuilder {
+
+	/** The largest total number of entries a bank can hold. */
+	private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+	private int[] offsets = new int[16];
+
+	private int numPMFs = 0;
+
+	private double[] cmf = new double[1024];
+
+	private int[] hints = new int[1024];
+
+	private int numEntries = 0;
+
+
+	public PMFBankBuilder() {
+	}
+
+
+	/**
+	 * Add a distribution to the bank.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 *
+	 * @return - The pmfId of the distribution (they are numbered from 0 in the order added)
+	 */
+	public int add(double[] weights) {
+
+		Util.checkPMFInputArray(weights);
+		int n = weights.length;
+		if (n == 0) {
+			throw new IllegalArgumentException("A distribution needs at least 1 weight");
+		}
+		if (n > MAX_ENTRIES - numEntries) {
+			throw new IllegalArgumentException("A PMFBank holds at most " + MAX_ENTRIES
+					+ " entries");
+		}
+		ensureCapacity(numEntries + n);
+
+		//the same arithmetic as Util.buildCMF, so samples match a ChanAsuaPMF
+		int start = numEntries;
+		double sum = Util.sum(weights);
+		cmf[start] = weights[0];
+		for (int i = 1; i < n; i++) {
+			cmf[start + i] = cmf[start + i - 1] + weights[i];
+		}
+		for (int i = start; i < start + n; i++) {
+			cmf[i] /= sum;
+		}
+
+		//hint j is the first entry whose CMF reaches j / n
+		int currentNum = start;
+		for (int j = 0; j < n; j++) {
+			double point = ((double) j) / n;
+			while (cmf[currentNum] < point) {
+				currentNum++;
+			}
+			hints[start + j] = currentNum;
+		}
+
+		numEntries += n;
+		if (numPMFs + 2 > offsets.length) {
+			offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+		}
+		offsets[numPMFs] = start;
+		offsets[numPMFs + 1] = numEntries;
+		return numPMFs++;
+	}
+
+
+	/** @return - The number of distributions added so far. */
+	public int size() {
+		return numPMFs;
+	}
+
+
+	/** @return - A bank that holds every distribution added so far. */
+	public PMFBank build() {
+		long start = System.nanoTime();
+		PMFBank bank = new ArrayPMFBank(
+				Arrays.copyOf(offsets, numPMFs + 1),
+				Arrays.copyOf(cmf, numEntries),
+				Arrays.copyOf(hints, numEntries));
+
+		//the distributions were built by add(), this only copies them into the bank
+		PMFMetrics.pmfBuilt("PMFBank", numEntries, 4L * (numPMFs + 1) + 12L * numEntries,
+				System.nanoTime() - start);
+		return bank;
+	}
+
+
+	private void ensureCapacity(int entries) {
+		if (entries > cmf.length) {
+			int capacity = (int) Math.min(MAX_ENTRIES, Math.max(entries, 2L * cmf.length));
+			cmf = Arrays.copyOf(cmf, capacity);
+			hints = Arrays.copyOf(hints, capacity);
+		}
+	}
+}
@@ -0,0 +1,445 @@
+package probMass;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Save built ProbMassFunctions in a compact binary format and load them back by memory-mapping the
+ * file. A mapped PMF is sampled directly from the page cache: loading takes milliseconds whatever
+ * its size, its tables do not occupy the Java heap, and every JVM on a machine that maps the same
+ * file shares one copy of it.
+ *
+ * The format is little-endian. A 40 byte header (magic "PROBMASS", int version, int kind, long
+ * outcomes, long tableLength, int entryBits, int padding) is followed by the kind's tables, each
+ * one starting on an 8 byte boundary:
+ *
+ * - BinarySearchPMF: double cmf[outcomes]
+ *
+ * - ChanAsuaPMF: double cmf[outcomes], int hints[tableLength]
+ *
+ * - SpoofingPMF: double binCMF[bins], double binFirstQ[bins], double binSlope[bins], int
+ * hints[bins], int binSize[bins], int binStart[bins] and, unless entryBits is 0 (presorted input),
+ * the sorted-to-original index table stored in entryBits bits per outcome (16 and 32 bit entries
+ * are shorts and ints, other widths are packed into longs). Here bins is the tableLength.
+ *
+ * - PMFBank: int offsets[tableLength + 1], double cmf[outcomes], int hints[outcomes]. Here
+ * tableLength is the number of distributions and outcomes their total number of entries.
+ */
+public final class PMFFiles {
+
+	/** "PROBMASS" read as a little-endian long. */
+	private static final long MAGIC = 0x5353414D424F5250L;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 40;
+
+	static final int BINARY_SEARCH = 1;
+
+	static final int CHAN_ASUA = 2;
+
+	static final int SPOOFING = 3;
+
+	static final int BANK = 4;
+
+
+	private PMFFiles() {
+	}
+
+
+	/**
+	 * Write a PMF to a file. The file is written under a temporary name and then renamed, so a
+	 * process mapping the path never sees a partially written file.
+	 *
+	 * @param pmf - A BinarySearchPMF, ChanAsuaPMF or SpoofingPMF
+	 * @param path - Where to write the PMF (replaced if it exists)
+	 */
+	public static void write(ProbMassFunction pmf, Path path) throws IOException {
+
+		if (!(pmf instanceof BinarySearchPMF
+				|| pmf instanceof ChanAsuaPMF
+				|| pmf instanceof SpoofingPMF)) {
+			throw new IllegalArgumentException(
+					"Only a BinarySearchPMF, ChanAsuaPMF or SpoofingPMF can be written :: "
+					+ ((pmf == null) ? null : pmf.getClass().getName()));
+		}
+
+		writeAtomically(path, out -> {
+			if (pmf instanceof BinarySearchPMF) {
+				((BinarySearchPMF) pmf).writeTo(out);
+			} else if (pmf instanceof ChanAsuaPMF) {
+				((ChanAsuaPMF) pmf).writeTo(out);
+			} else {
+				((SpoofingPMF) pmf).writeTo(out);
+			}
+		});
+	}
+
+
+	/**
+	 * Write a PMFBank to a file, like write(ProbMassFunction, Path).
+	 *
+	 * @param bank - A bank built by a PMFBankBuilder (or mapped by mapBank)
+	 * @param path - Where to write the bank (replaced if it exists)
+	 */
+	public static void write(PMFBank bank, Path path) throws IOException {
+
+		if (bank instanceof ArrayPMFBank) {
+			writeAtomically(path, out -> ((ArrayPMFBank) bank).writeTo(out));
+		} else if (bank instanceof MappedPMFBank) {
+			Files.copy(Path.of(((MappedPMFBank) bank).getFile()), path,
+					StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			throw new IllegalArgumentException("Only a bank built by a PMFBankBuilder can be"
+					+ " written :: " + ((bank == null) ? null : bank.getClass().getName()));
+		}
+	}
+
+
+	/** Writes the tables of one PMF or bank. */
+	private interface Writer {
+		void writeTo(Output out) throws IOException;
+	}
+
+
+	/** Write to a temporary file, then rename it to path. */
+	private static void writeAtomically(Path path, Writer writer) throws IOException {
+
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			try (Output out = new Output(FileChannel.open(temp,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING))) {
+				writer.writeTo(out);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Memory-map a file written by write(). The returned PMF gives the same samples as the PMF
+	 * that was written. It stays valid after the file is deleted, but the file must not be
+	 * modified in place while it is mapped.
+	 *
+	 * @param path - A file written by write()
+	 *
+	 * @return - A ProbMassFunction that samples from the mapped file
+	 */
+	public static ProbMassFunction map(Path path) throws IOException {
+
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			Header header = new Header(channel, path);
+			int kind = header.kind;
+			long outcomes = header.outcomes;
+			long tableLength = header.tableLength;
+			int entryBits = header.entryBits;
+
+			Sections sections = new Sections(channel, path);
+			String file = path.toAbsolutePath().toString();
+
+			ProbMassFunction pmf;
+			if (kind == BINARY_SEARCH) {
+				pmf = new MappedBinarySearchPMF(file, sections.next(outcomes, 8));
+
+			} else if (kind == CHAN_ASUA) {
+				OffHeapArray cmf = sections.next(outcomes, 8);
+				OffHeapArray hints = sections.next(tableLength, 4);
+				pmf = new MappedChanAsuaPMF(file, cmf, hints);
+
+			} else if (kind == SPOOFING) {
+				OffHeapArray binCMF = sections.next(tableLength, 8);
+				OffHeapArray binFirstQ = sections.next(tableLength, 8);
+				OffHeapArray binSlope = sections.next(tableLength, 8);
+				OffHeapArray hints = sections.next(tableLength, 4);
+				OffHeapArray binSize = sections.next(tableLength, 4);
+				OffHeapArray binStart = sections.next(tableLength, 4);
+
+				OffHeapArray entries = null;
+				if (entryBits == 16) {
+					entries = sections.next(outcomes, 2);
+				} else if (entryBits == 32) {
+					entries = sections.next(outcomes, 4);
+				} else if (entryBits > 0) {
+					entries = sections.next((outcomes * entryBits + 63L) / 64L, 8);
+				}
+
+				pmf = new MappedSpoofingPMF(file, binCMF, binFirstQ, binSlope, hints, binSize,
+						binStart, entries, entryBits, (int) outcomes);
+
+			} else if (kind == BANK) {
+				throw new IOException("The file holds a PMFBank, use mapBank() :: " + path);
+
+			} else {
+				throw new IOException("Unknown PMF kind " + kind + " :: " + path);
+			}
+
+			//the tables are the mapped file, building is mapping it
+			PMFMetrics.pmfBuilt(pmf.getClass().getSimpleName(), outcomes, channel.size(),
+					System.nanoTime() - start);
+			return pmf;
+		}
+	}
+
+
+	/**
+	 * Memory-map a file written by write(PMFBank, Path), like map().
+	 *
+	 * @param path - A file written by write(PMFBank, Path)
+	 *
+	 * @return - A PMFBank that samples from the mapped file
+	 */
+	public static PMFBank mapBank(Path path) throws IOException {
+
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			Header header = new Header(channel, path);
+			if (header.kind != BANK) {
+				throw new IOException("The file does not hold a PMFBank, use map() :: " + path);
+			}
+
+			Sections sections = new Sections(channel, path);
+			OffHeapArray offsets = sections.next(header.tableLength + 1, 4);
+			OffHeapArray cmf = sections.next(header.outcomes, 8);
+			OffHeapArray hints = sections.next(header.outcomes, 4);
+			PMFMetrics.pmfBuilt("MappedPMFBank", header.outcomes, channel.size(),
+					System.nanoTime() - start);
+			return new MappedPMFBank(path.toAbsolutePath().toString(), offsets, cmf, hints);
+		}
+	}
+
+
+	/** The header every file starts with. */
+	private static class Header {
+
+		final int kind;
+
+		final long outcomes;
+
+		final long tableLength;
+
+		final int entryBits;
+
+
+		/** Read and check the header. */
+		Header(FileChannel channel, Path path) throws IOException {
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				//keep reading
+			}
+			header.flip();
+
+			if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+				throw new IOException("Not a PMF file :: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported PMF file version " + version + " :: " + path);
+			}
+
+			this.kind = header.getInt();
+			this.outcomes = header.getLong();
+			this.tableLength = header.getLong();
+			this.entryBits = header.getInt();
+
+			if (outcomes < 1 || outcomes > Integer.MAX_VALUE || tableLength < 1
+					|| tableLength > Integer.MAX_VALUE || entryBits < 0 || entryBits > 32) {
+				throw new IOException("Corrupt PMF file header :: " + path);
+			}
+		}
+	}
+
+
+	/** @return - position rounded up to a multiple of 8. */
+	private static long align(long position) {
+		return (position + 7L) & ~7L;
+	}
+
+
+	/** Maps the tables that follow the header one after another. */
+	private static class Sections {
+
+		private final FileChannel channel;
+
+		private final Path path;
+
+		private final long size;
+
+		private long offset = HEADER_BYTES;
+
+
+		Sections(FileChannel channel, Path path) throws IOException {
+			this.channel = channel;
+			this.path = path;
+			this.size = channel.size();
+		}
+
+
+		OffHeapArray next(long length, int elementBytes) throws IOException {
+
+			long end = offset + length * elementBytes;
+			if (end > size) {
+				throw new IOException("Truncated PMF file :: " + path);
+			}
+
+			OffHeapArray array = OffHeapArray.map(channel, offset, length, elementBytes);
+			offset = align(end);
+			return array;
+		}
+	}
+
+
+	/** A buffered, little-endian writer for the format described above. */
+	static final class Output implements Closeable {
+
+		private final FileChannel channel;
+
+		private final ByteBuffer buffer =
+				ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+
+		/** Write the header, every PMF starts with this. */
+		void putHeader(int kind, long outcomes, long tableLength, int entryBits)
+				throws IOException {
+			putLong(MAGIC);
+			putInt(VERSION);
+			putInt(kind);
+			putLong(outcomes);
+			putLong(tableLength);
+			putInt(entryBits);
+			putInt(0);
+		}
+
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+
+		/** Write a table, padded to the next 8 byte boundary. */
+		void putDoubles(double[] values) throws IOException {
+			putDoubles(values, 0, values.length);
+		}
+
+
+		/** Write values[from] to values[to - 1]. */
+		void putDoubles(double[] values, int from, int to) throws IOException {
+			for (int i = from; i < to; ) {
+				ensure(8);
+				int count = Math.min(to - i, buffer.remaining() / 8);
+				buffer.asDoubleBuffer().put(values, i, count);
+				buffer.position(buffer.position() + count * 8);
+				i += count;
+			}
+		}
+
+
+		/** Write a table, padded to the next 8 byte boundary. */
+		void putLongs(long[] values) throws IOException {
+			for (int i = 0; i < values.length; ) {
+				ensure(8);
+				int count = Math.min(values.length - i, buffer.remaining() / 8);
+				buffer.asLongBuffer().put(values, i, count);
+				buffer.position(buffer.position() + count * 8);
+				i += count;
+			}
+		}
+
+
+		/** Write a table, padded to the next 8 byte boundary. */
+		void putInts(int[] values) throws IOException {
+			putInts(values, 0, values.length);
+			pad();
+		}
+
+
+		/** Write values[from] to values[to - 1] (without padding). */
+		void putInts(int[] values, int from, int to) throws IOException {
+			for (int i = from; i < to; ) {
+				ensure(4);
+				int count = Math.min(to - i, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, i, count);
+				buffer.position(buffer.position() + count * 4);
+				i += count;
+			}
+		}
+
+
+		/** Write a table, padded to the next 8 byte boundary. */
+		void putShorts(short[] values) throws IOException {
+			for (int i = 0; i < values.length; ) {
+				ensure(2);
+				int count = Math.min(values.length - i, buffer.remaining() / 2);
+				buffer.asShortBuffer().put(values, i, count);
+				buffer.position(buffer.position() + count * 2);
+				i += count;
+			}
+			pad();
+		}
+
+
+		/** Write zeros to the next 8 byte boundary (the buffer's capacity is a multiple of 8). */
+		private void pad() throws IOException {
+			while ((buffer.position() & 7) != 0) {
+				buffer.put((byte) 0);
+			}
+		}
+
+
+		/** Make room for at least this many bytes. */
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package probMass;
+
+
+/**
+ * A PMFListener receives the measurements PMFs make while they are built and sampled (see
+ * PMFMetrics.setListener). Every method does nothing by default, so a listener only overrides what
+ * it records. The methods are called on the thread doing the work (possibly several at once), and
+ * should return quickly.
+ *
+ * The "pmf" argument of each method is the simple class name of the PMF, e.g. "SpoofingPMF".
+ */
+public interface PMFListener {
+
+	/**
+	 * One phase of a build finished. SpoofingPMFs report "sort" (or "normalize" when the input
+	 * was presorted), "refine" (fitting and splitting bins) and "tables" (the CMF and hints).
+	 *
+	 * @param pmf - The kind of PMF being built
+	 * @param phase - The name of the phase
+	 * @param nanos - How long the phase took
+	 */
+	public default void buildPhase(String pmf, String phase, long nanos) {
+	}
+
+
+	/**
+	 * A SpoofingPMF finished refining its bins.
+	 *
+	 * @param bins - The final number of bins
+	 * @param iterations - The number of refinement steps (bins split one at a time, or rounds of
+	 * splits when refining in parallel)
+	 * @param lambda - The total error of the bins
+	 * @param errorLimit - The total error that was asked for (see SpoofingLimits)
+	 */
+	public default void binsRefined(int bins, int iterations, double lambda, double errorLimit) {
+	}
+
+
+	/**
+	 * A PMF was built. Every PMF reports its build, PMFFiles.map and mapBank report the mapping
+	 * (the bytes are the file's size) and PMFBankBuilder.build reports the bank as one "PMFBank".
+	 *
+	 * @param pmf - The kind of PMF built
+	 * @param outcomes - The number of outcomes it samples
+	 * @param bytes - The memory used by its tables
+	 * @param nanos - How long the build took
+	 */
+	public default void pmfBuilt(String pmf, long outcomes, long bytes, long nanos) {
+	}
+
+
+	/**
+	 * A LifetimeAwarePMF failed to build the SpoofingPMF for its next lifetime. It keeps drawing
+	 * from its current SpoofingPMF and only tries smaller lifetimes from now on.
+	 *
+	 * @param lifetime - The lifetime that failed to build
+	 * @param cause - What the build (or the pool it was submitted to) threw
+	 */
+	public default void rebuildFailed(long lifetime, Throwable cause) {
+	}
+
+
+	/**
+	 * A draw walked this far from its hint to the right CMF entry. Every PMF and PMFBank that
+	 * samples with a hint table reports it, from single and batch draws alike. Only reported for a
+	 * random sample of draws, and only when the JVM runs with -DprobMass.walkSampling=N (see
+	 * PMFMetrics).
+	 *
+	 * @param pmf - The kind of PMF sampled
+	 * @param length - The number of CMF entries skipped
+	 */
+	public default void hintWalk(String pmf, int length) {
+	}
+}
@@ -0,0 +1,239 @@
+package probMass;
+
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * PMFMetrics routes the measurements PMFs make to the registered PMFListener (if any) and to Java
+ * Flight Recorder, as the events probMass.BuildPhase, probMass.BinsRefined, probMass.PMFBuilt,
+ * probMass.RebuildFailed and probMass.HintWalk. Record them with e.g. -XX:StartFlightRecording.
+ *
+ * Builds are always measured (a few calls to System.nanoTime per build). Draws are only measured
+ * when the JVM runs with -DprobMass.walkSampling=N, which reports the hint walk of about one draw
+ * in N (N is rounded down to a power of 2). Without that property the check is a static final
+ * constant, so the JIT removes it from the sampling loops.
+ */
+public final class PMFMetrics {
+
+	/** True when some draws should report their hint walk. */
+	static final boolean SAMPLE_WALKS;
+
+	/** A draw reports its hint walk when (a random int & WALK_SAMPLE_MASK) is 0. */
+	private static final int WALK_SAMPLE_MASK;
+
+	static {
+		int sampling = Integer.getInteger("probMass.walkSampling", 0);
+		SAMPLE_WALKS = sampling > 0;
+		WALK_SAMPLE_MASK = SAMPLE_WALKS ? Integer.highestOneBit(sampling) - 1 : 0;
+	}
+
+	/** Receives every measurement (null when no one is listening). */
+	private static volatile PMFListener listener = null;
+
+
+	private PMFMetrics() {
+	}
+
+
+	/**
+	 * @param newListener - Receives every measurement from now on (null to stop listening)
+	 */
+	public static void setListener(PMFListener newListener) {
+		listener = newListener;
+	}
+
+
+	/** @return - The registered PMFListener (null when there is none). */
+	public static PMFListener getListener() {
+		return listener;
+	}
+
+
+	/** See PMFListener.buildPhase. */
+	static void buildPhase(String pmf, String phase, long nanos) {
+		PMFListener l = listener;
+		if (l != null) {
+			l.buildPhase(pmf, phase, nanos);
+		}
+
+		BuildPhaseEvent event = new BuildPhaseEvent();
+		if (event.shouldCommit()) {
+			event.pmf = pmf;
+			event.phase = phase;
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+
+	/** See PMFListener.binsRefined. */
+	static void binsRefined(int bins, int iterations, double lambda, double errorLimit) {
+		PMFListener l = listener;
+		if (l != null) {
+			l.binsRefined(bins, iterations, lambda, errorLimit);
+		}
+
+		BinsRefinedEvent event = new BinsRefinedEvent();
+		if (event.shouldCommit()) {
+			event.bins = bins;
+			event.iterations = iterations;
+			event.lambda = lambda;
+			event.errorLimit = errorLimit;
+			event.commit();
+		}
+	}
+
+
+	/** See PMFListener.pmfBuilt. */
+	static void pmfBuilt(String pmf, long outcomes, long bytes, long nanos) {
+		PMFListener l = listener;
+		if (l != null) {
+			l.pmfBuilt(pmf, outcomes, bytes, nanos);
+		}
+
+		PMFBuiltEvent event = new PMFBuiltEvent();
+		if (event.shouldCommit()) {
+			event.pmf = pmf;
+			event.outcomes = outcomes;
+			event.bytes = bytes;
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+
+	/** See PMFListener.rebuildFailed. */
+	static void rebuildFailed(long lifetime, Throwable cause) {
+		PMFListener l = listener;
+		if (l != null) {
+			l.rebuildFailed(lifetime, cause);
+		}
+
+		RebuildFailedEvent event = new RebuildFailedEvent();
+		if (event.shouldCommit()) {
+			event.lifetime = lifetime;
+			event.cause = cause.toString();
+			event.commit();
+		}
+	}
+
+
+	/**
+	 * See PMFListener.hintWalk. Callers check SAMPLE_WALKS first, this picks the random sample of
+	 * draws that are reported.
+	 */
+	static void hintWalk(String pmf, int length) {
+		if ((ThreadLocalRandom.current().nextInt() & WALK_SAMPLE_MASK) != 0) {
+			return;
+		}
+
+		PMFListener l = listener;
+		if (l != null) {
+			l.hintWalk(pmf, length);
+		}
+
+		HintWalkEvent event = new HintWalkEvent();
+		if (event.shouldCommit()) {
+			event.pmf = pmf;
+			event.length = length;
+			event.commit();
+		}
+	}
+
+
+	@Name("probMass.BuildPhase")
+	@Label("PMF Build Phase")
+	@Category("ProbMass")
+	@Description("One phase of building a ProbMassFunction")
+	static class BuildPhaseEvent extends Event {
+
+		@Label("PMF")
+		String pmf;
+
+		@Label("Phase")
+		String phase;
+
+		@Label("Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long nanos;
+	}
+
+
+	@Name("probMass.BinsRefined")
+	@Label("Spoofing Bins Refined")
+	@Category("ProbMass")
+	@Description("A SpoofingPMF finished refining its bins")
+	static class BinsRefinedEvent extends Event {
+
+		@Label("Bins")
+		int bins;
+
+		@Label("Iterations")
+		int iterations;
+
+		@Label("Lambda")
+		double lambda;
+
+		@Label("Error Limit")
+		double errorLimit;
+	}
+
+
+	@Name("probMass.PMFBuilt")
+	@Label("PMF Built")
+	@Category("ProbMass")
+	@Description("A ProbMassFunction was built")
+	static class PMFBuiltEvent extends Event {
+
+		@Label("PMF")
+		String pmf;
+
+		@Label("Outcomes")
+		long outcomes;
+
+		@Label("Table Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Build Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long nanos;
+	}
+
+
+	@Name("probMass.RebuildFailed")
+	@Label("Rebuild Failed")
+	@Category("ProbMass")
+	@Description("A LifetimeAwarePMF failed to build the SpoofingPMF for its next lifetime")
+	static class RebuildFailedEvent extends Event {
+
+		@Label("Lifetime")
+		long lifetime;
+
+		@Label("Cause")
+		String cause;
+	}
+
+
+	@Name("probMass.HintWalk")
+	@Label("Hint Walk")
+	@Category("ProbMass")
+	@Description("How far a sampled draw walked from its hint")
+	static class HintWalkEvent extends Event {
+
+		@Label("PMF")
+		String pmf;
+
+		@Label("Length")
+		int length;
+	}
+}
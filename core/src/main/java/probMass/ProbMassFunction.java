@@ -0,0 +1,137 @@
+package probMass;
+
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+
+/**
+ * A ProbMassFunction enables the user to transform a uniform random number drawn from a standard
+ * RNG to a sample from a Probability Mass Function.
+ *
+ * The implementations in this package are never modified after construction, so a safely
+ * published instance (see ConcurrentSampler) may be sampled from any number of threads at once.
+ * Random numbers are the caller's responsibility, and should not come from one shared generator.
+ */
+public interface ProbMassFunction extends Serializable {
+
+	/**
+	 * @param uniformRandomDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return - A sample from the PMF that corresponds to the input uniform random number.
+	 */
+	public int getSample(double uniformRandomDraw);
+
+
+	/**
+	 * Draw a sample from 64 random bits (e.g. RandomGenerator.nextLong()) instead of a uniform
+	 * double. Implementations that override this take their table index from the high bits and any
+	 * second decision from the low bits, skipping the double arithmetic of getSample(double).
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return - A sample from the PMF. Its distribution matches getSample(double) (up to rounding
+	 * probabilities to multiples of 2^-32), but it is generally not the sample getSample(double)
+	 * returns for the same bits read as a double.
+	 */
+	public default int getSample(long randomBits) {
+		return getSample((randomBits >>> 11) * 0x1.0p-53);
+	}
+
+
+	/**
+	 * Draw a sample from 32 random bits (e.g. RandomGenerator.nextInt()), see getSample(long).
+	 *
+	 * @param randomBits - 32 uniformly distributed random bits
+	 *
+	 * @return - A sample from the PMF, with probabilities rounded to multiples of 2^-32.
+	 */
+	public default int getSample(int randomBits) {
+		return getSample((randomBits & 0xFFFFFFFFL) * 0x1.0p-32);
+	}
+
+
+	/**
+	 * Transform many uniform random numbers at once. Implementations override this with a tight
+	 * loop so the interface call is paid once per batch rather than once per draw.
+	 *
+	 * @param uniformRandomDraws - Uniformly distributed random numbers between 0 and 1
+	 * @param out - Receives the sample for uniformRandomDraws[i] at out[i], must be at least as
+	 * long as uniformRandomDraws
+	 */
+	public default void sample(double[] uniformRandomDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformRandomDraws.length, out.length);
+
+		for (int i = 0; i < uniformRandomDraws.length; i++) {
+			out[i] = getSample(uniformRandomDraws[i]);
+		}
+	}
+
+
+	/**
+	 * Fill part of an array with samples, drawing the uniform random numbers from rng.
+	 *
+	 * @param rng - The source of uniform random numbers
+	 * @param out - Receives the samples
+	 * @param from - The first index of out to fill (inclusive)
+	 * @param to - The last index of out to fill (exclusive)
+	 */
+	public default void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		for (int i = from; i < to; i++) {
+			out[i] = getSample(rng.nextDouble());
+		}
+	}
+
+
+	/**
+	 * Draw m samples, and report how many times each outcome was drawn instead of the samples.
+	 * Implementations that know their probabilities (CumulativePMF, SpoofingPMF) split m between
+	 * halves of the outcomes with binomial draws, which costs O(min(N, m log N)) binomial draws
+	 * however large m is (each binomial draw costs one O(1) draw per 2^53 trials). This default
+	 * draws and counts all m samples.
+	 *
+	 * @param m - The number of samples
+	 * @param rng - The source of random numbers
+	 * @param counts - Called once (in no particular order) for each outcome drawn at least once
+	 */
+	public default void drawCounts(long m, RandomGenerator rng, CountConsumer counts) {
+
+		long[] tally = Util.tally(this, m, rng);
+		for (int i = 0; i < tally.length; i++) {
+			if (tally[i] > 0) {
+				counts.accept(i, tally[i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Draw m samples, and return how many times each outcome was drawn (see
+	 * drawCounts(long, RandomGenerator, CountConsumer)).
+	 *
+	 * @param m - The number of samples
+	 * @param rng - The source of random numbers
+	 *
+	 * @return - The number of times outcome i was drawn at index i. The array has one entry per
+	 * outcome when the implementation knows its number of outcomes, otherwise it ends at the
+	 * largest outcome drawn.
+	 */
+	public default long[] drawCounts(long m, RandomGenerator rng) {
+		return Util.tally(this, m, rng);
+	}
+
+
+	/** Receives the result of drawCounts(long, RandomGenerator, CountConsumer). */
+	@FunctionalInterface
+	public interface CountConsumer {
+
+		/**
+		 * @param outcome - An outcome that was drawn
+		 * @param count - The number of times it was drawn (at least 1)
+		 */
+		void accept(int outcome, long count);
+	}
+}
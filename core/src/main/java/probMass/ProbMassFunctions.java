@@ -0,0 +1,245 @@
+package probMass;
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongToDoubleFunction;
+
+
+public class ProbMassFunctions {
+
+	/**
+	 * Create a ProbMassFunction that uses 12 bytes per entry in the input array and should return a
+	 * random sample in constant time.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction highSpeedHighMemoryPMF(double[] weights) {
+		return new ChanAsuaPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 12 bytes per entry in the input array and returns a
+	 * random sample in constant time, even for heavily skewed weights. Each draw is one table
+	 * lookup and one comparison (see AliasPMF).
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction constantSpeedHighMemoryPMF(double[] weights) {
+		return new AliasPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 8 bytes per entry in the input array and returns a sample
+	 * in logarithmic time.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction mediumSpeedMediumMemoryPMF(double[] weights) {
+		return new BinarySearchPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 8 bytes per entry in the input array and should return a
+	 * random sample in constant time. It is a highSpeedHighMemoryPMF whose CMF is rounded to 32 bit
+	 * fixed point (see FixedPointPMF). If that rounding could be detected within lifetime draws
+	 * (its total lambda exceeds SpoofingLimits.forLifetime(lifetime)) a highSpeedHighMemoryPMF is
+	 * returned instead.
+	 *
+	 * @param lifetime - How many random draws the PMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction highSpeedFixedPointPMF(long lifetime, double[] weights) {
+		FixedPointPMF pmf = new FixedPointPMF(weights, true);
+		return withinLimit(lifetime, pmf.getLambda()) ? pmf : highSpeedHighMemoryPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 4 bytes per entry in the input array and returns a sample
+	 * in logarithmic time. It is a mediumSpeedMediumMemoryPMF whose CMF is rounded to 32 bit fixed
+	 * point (see FixedPointPMF), and falls back like highSpeedFixedPointPMF.
+	 *
+	 * @param lifetime - How many random draws the PMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction mediumSpeedFixedPointPMF(long lifetime, double[] weights) {
+		FixedPointPMF pmf = new FixedPointPMF(weights, false);
+		return withinLimit(lifetime, pmf.getLambda()) ? pmf : mediumSpeedMediumMemoryPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 8 bytes per entry in the input array and should return a
+	 * random sample in constant time. It is a highSpeedHighMemoryPMF whose CMF is rounded to floats
+	 * (see FloatPMF). Float rounding is much coarser than fixed point, so this only suits small
+	 * PMFs. If the rounding could be detected within lifetime draws a highSpeedHighMemoryPMF is
+	 * returned instead.
+	 *
+	 * @param lifetime - How many random draws the PMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction highSpeedFloatPMF(long lifetime, double[] weights) {
+		FloatPMF pmf = new FloatPMF(weights, true);
+		return withinLimit(lifetime, pmf.getLambda()) ? pmf : highSpeedHighMemoryPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction that uses 4 bytes per entry in the input array and returns a sample
+	 * in logarithmic time. It is a mediumSpeedMediumMemoryPMF whose CMF is rounded to floats (see
+	 * FloatPMF), and falls back like highSpeedFloatPMF.
+	 *
+	 * @param lifetime - How many random draws the PMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction mediumSpeedFloatPMF(long lifetime, double[] weights) {
+		FloatPMF pmf = new FloatPMF(weights, false);
+		return withinLimit(lifetime, pmf.getLambda()) ? pmf : mediumSpeedMediumMemoryPMF(weights);
+	}
+
+
+	/**
+	 * Create a PMFBank that holds one distribution per row of weights in shared arrays. Each
+	 * distribution uses 12 bytes per entry (plus a 4 byte offset) and is sampled in constant time
+	 * like a highSpeedHighMemoryPMF. Use a PMFBankBuilder to add rows one at a time instead.
+	 *
+	 * @param weights - One set of weights per distribution
+	 */
+	public static PMFBank pmfBank(double[][] weights) {
+		PMFBankBuilder builder = new PMFBankBuilder();
+		for (double[] row : weights) {
+			builder.add(row);
+		}
+		return builder.build();
+	}
+
+
+	/**
+	 * Choose and build the ProbMassFunction that best suits a workload. Each candidate's memory
+	 * use and table reads per draw are estimated from the weights, and the fastest candidate that
+	 * fits the memory budget (and whose error, if it is lossy, is undetectable within lifetime
+	 * draws) is built. The returned WorkloadPlan holds the PMF and a report of the choice.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 * @param lifetime - How many random draws the PMF should support
+	 * @param memoryBudget - The most memory the PMF's tables should use, in bytes
+	 * @param maxProbesPerDraw - The latency target: the average number of table reads a draw may
+	 * make (at least 1). For tables larger than the CPU cache each read is about one cache miss.
+	 */
+	public static WorkloadPlan forWorkload(
+			double[] weights, long lifetime, long memoryBudget, double maxProbesPerDraw) {
+		return WorkloadPlan.plan(weights, lifetime, memoryBudget, maxProbesPerDraw);
+	}
+
+
+	/** @return - True if a PMF with this total lambda supports lifetime draws. */
+	static boolean withinLimit(long lifetime, double lambda) {
+		return lambda <= SpoofingLimits.forLifetime(lifetime).getErrorLimit();
+	}
+
+
+	/**
+	 * Create a ProbMassFunction whose weights can be changed after it is built (see DynamicPMF).
+	 * It uses 16 to 32 bytes per entry in the input array, and changing a weight or drawing a
+	 * sample takes logarithmic time.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static DynamicPMF dynamicPMF(double[] weights) {
+		return new DynamicPMF(weights);
+	}
+
+
+	/**
+	 * Create a ProbMassFunction based on the lossy "Spoofing" compression technique. This
+	 * ProbMassFunction uses roughly 2 bytes per entry in the input array (up to 65,536 entries,
+	 * ceil(log2(N)) bits per entry up to 2^24 entries, then 4 bytes) and should return a random
+	 * sample almost as fast as the highSpeedHighMemoryPMF.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction compressedPMF(long lifetime, double[] weights) {
+		return new SpoofingPMF(lifetime, weights);
+	}
+
+
+	/**
+	 * Create a compressedPMF with an explicit error tolerance and/or memory budget instead of the
+	 * default .05 significance over lifetime draws (see SpoofingLimits).
+	 *
+	 * @param limits - When to stop refining the bins
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction compressedPMF(SpoofingLimits limits, double[] weights) {
+		return new SpoofingPMF(limits, weights);
+	}
+
+
+	/**
+	 * Create a compressedPMF using every thread of the common ForkJoinPool to build it. Use this
+	 * for very large inputs, where building a compressedPMF on one thread can take minutes. The
+	 * result may contain slightly more bins (and be slightly more accurate) than compressedPMF.
+	 *
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static ProbMassFunction parallelCompressedPMF(long lifetime, double[] weights) {
+		return new SpoofingPMF(lifetime, weights, ForkJoinPool.commonPool());
+	}
+
+
+	/**
+	 * Create a compressedPMF that counts its draws and, as they approach lifetime, rebuilds itself
+	 * in the background for a longer lifetime (see LifetimeAwarePMF). Use this when the number of
+	 * draws is not known up front. It keeps a copy of the weights, 8 bytes per entry.
+	 *
+	 * @param lifetime - How many random draws the first compressedPMF should support
+	 * @param weights - A set of weights, each number will be drawn with probability (weight[i] /
+	 * sumOfWeights)
+	 */
+	public static LifetimeAwarePMF lifetimeAwareCompressedPMF(long lifetime, double[] weights) {
+		return new LifetimeAwarePMF(lifetime, weights);
+	}
+
+
+	/**
+	 * Create a LongProbMassFunction that keeps its tables off the Java heap, uses 16 bytes of
+	 * direct memory per entry and should return a random sample in constant time. Use this when
+	 * there are more than 2^31 weights, or to keep a large table out of the garbage collector's
+	 * way. Raise -XX:MaxDirectMemorySize to fit the table.
+	 *
+	 * @param n - The number of weights
+	 * @param weights - Supplies weight i, each i will be drawn with probability (weights(i) /
+	 * sumOfWeights)
+	 */
+	public static LongProbMassFunction highSpeedOffHeapPMF(long n, LongToDoubleFunction weights) {
+		return new OffHeapChanAsuaPMF(n, weights);
+	}
+
+
+	/**
+	 * Create a LongProbMassFunction that keeps its tables off the Java heap, uses 8 bytes of
+	 * direct memory per entry and returns a sample in logarithmic time.
+	 *
+	 * @param n - The number of weights
+	 * @param weights - Supplies weight i, each i will be drawn with probability (weights(i) /
+	 * sumOfWeights)
+	 */
+	public static LongProbMassFunction mediumSpeedOffHeapPMF(long n, LongToDoubleFunction weights) {
+		return new OffHeapBinarySearchPMF(n, weights);
+	}
+}
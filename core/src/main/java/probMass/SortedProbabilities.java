@@ -0,0 +1,53 @@
+package probMass;
+
+
+/**
+ * The normalized probabilities a SpoofingPMF's bins are refined over, in descending order. Bins
+ * only read them while they are being built, so they can stay in a double[] or, when
+ * SpoofingPMFBuilder builds from a file or stream, in a memory-mapped temporary file that never
+ * occupies the Java heap.
+ *
+ * This is one final class that checks which of the two it holds on every read, rather than one
+ * subclass per storage: the check is hoisted out of Bin's loops, a virtual call is not.
+ */
+final class SortedProbabilities {
+
+	/** The probabilities, or null if they are mapped. */
+	private final double[] onHeap;
+
+	/** The probabilities, or null if they are in onHeap. */
+	private final OffHeapArray mapped;
+
+	private final int length;
+
+
+	private SortedProbabilities(double[] onHeap, OffHeapArray mapped, int length) {
+		this.onHeap = onHeap;
+		this.mapped = mapped;
+		this.length = length;
+	}
+
+
+	/** @return - A view of the probabilities in this array (not copied). */
+	static SortedProbabilities of(double[] pValues) {
+		return new SortedProbabilities(pValues, null, pValues.length);
+	}
+
+
+	/** @return - A view of the probabilities in this off-heap array (not copied). */
+	static SortedProbabilities of(OffHeapArray pValues) {
+		return new SortedProbabilities(null, pValues, (int) pValues.length());
+	}
+
+
+	/** @return - The probability at this sorted position. */
+	double get(int position) {
+		return (onHeap != null) ? onHeap[position] : mapped.getDouble(position);
+	}
+
+
+	/** @return - The number of probabilities. */
+	int length() {
+		return length;
+	}
+}
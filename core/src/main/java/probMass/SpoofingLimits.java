@@ -0,0 +1,140 @@
+package probMass;
+
+
+/**
+ * SpoofingLimits decide when a SpoofingPMF stops refining its bins. Refinement stops as soon as
+ * either limit is met:
+ *
+ * - The error limit: the total lambda (see Parker and Engler) the bins may have. It is usually
+ * derived from how many draws the PMF must support and how often a statistical test of those draws
+ * may detect the spoofing: lambda = z^2 / (2 * lifetime), where z is the (1 - significance)
+ * quantile of the standard normal.
+ *
+ * - The maximum bin count: a hard memory budget. Each bin costs BYTES_PER_BIN bytes on top of the
+ * index table every SpoofingPMF keeps (which only depends on the number of weights).
+ *
+ * Bins of 3 or fewer entries cannot be split, so refinement also stops once every bin that still
+ * has an error is that small. A tight error limit on few weights can therefore end above the limit
+ * (see SpoofingPMF.getLambda()).
+ *
+ * SpoofingLimits are immutable.
+ */
+public final class SpoofingLimits {
+
+	/** The memory each bin of a SpoofingPMF uses (CMF, hint, first q, slope, size and offset). */
+	public static final int BYTES_PER_BIN = 8 + 4 + 8 + 8 + 4 + 4;
+
+	/** The significance level used when none is given. */
+	public static final double DEFAULT_SIGNIFICANCE = 0.05;
+
+	/** The number of standard deviations Parker and Engler use for DEFAULT_SIGNIFICANCE. */
+	private static final double DEFAULT_Z = 1.6449;
+
+	/** Refinement stops once the total lambda of the bins is at or below this. */
+	private final double errorLimit;
+
+	/** Refinement stops once there are this many bins. */
+	private final int maxBins;
+
+
+	private SpoofingLimits(double errorLimit, int maxBins) {
+
+		if (!(errorLimit > 0) || Double.isInfinite(errorLimit)) {
+			throw new IllegalArgumentException("The error limit must be finite and positive :: "
+					+ errorLimit);
+		}
+		if (maxBins < 1) {
+			throw new IllegalArgumentException("There must be at least 1 bin :: " + maxBins);
+		}
+
+		this.errorLimit = errorLimit;
+		this.maxBins = maxBins;
+	}
+
+
+	/**
+	 * @param lifetime - How many random draws the SpoofingPMF should support
+	 *
+	 * @return - The limits SpoofingPMF has always used, a significance of .05 over lifetime draws
+	 */
+	public static SpoofingLimits forLifetime(long lifetime) {
+		checkLifetime(lifetime);
+		return new SpoofingLimits(DEFAULT_Z * DEFAULT_Z / (2.0 * lifetime), Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * @param lifetime - How many random draws the SpoofingPMF should support
+	 * @param significance - The chance that a one-sided test of lifetime draws may reject the
+	 * (spoofed) distribution, between 0 and 0.5. Smaller values require more bins.
+	 *
+	 * @return - Limits that only bound the error
+	 */
+	public static SpoofingLimits forLifetime(long lifetime, double significance) {
+		checkLifetime(lifetime);
+		if (!(significance > 0 && significance < 0.5)) {
+			throw new IllegalArgumentException("The significance must be between 0 and 0.5 :: "
+					+ significance);
+		}
+
+		double z = Util.inverseNormalCDF(1.0 - significance);
+		return new SpoofingLimits(z * z / (2.0 * lifetime), Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * @param errorLimit - The largest acceptable total lambda, must be positive (no spoofed
+	 * distribution has a lambda of exactly 0, use an exact PMF instead)
+	 *
+	 * @return - Limits that only bound the error
+	 */
+	public static SpoofingLimits forErrorLimit(double errorLimit) {
+		return new SpoofingLimits(errorLimit, Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * @param maxBins - The largest acceptable number of bins
+	 *
+	 * @return - These limits, but also stopping once there are maxBins bins
+	 */
+	public SpoofingLimits withMaxBins(int maxBins) {
+		return new SpoofingLimits(errorLimit, maxBins);
+	}
+
+
+	/**
+	 * @param memoryBudget - The largest acceptable memory use of the bins in bytes
+	 *
+	 * @return - These limits, but also stopping before the bins use more than memoryBudget bytes
+	 */
+	public SpoofingLimits withBinMemoryBudget(long memoryBudget) {
+		long maxBins = Math.max(1, memoryBudget / BYTES_PER_BIN);
+		return withMaxBins((int) Math.min(Integer.MAX_VALUE, maxBins));
+	}
+
+
+	/** @return - Refinement stops once the total lambda of the bins is at or below this. */
+	public double getErrorLimit() {
+		return errorLimit;
+	}
+
+
+	/** @return - Refinement stops once there are this many bins. */
+	public int getMaxBins() {
+		return maxBins;
+	}
+
+
+	@Override
+	public String toString() {
+		return "SpoofingLimits{errorLimit=" + errorLimit + ", maxBins=" + maxBins + "}";
+	}
+
+
+	private static void checkLifetime(long lifetime) {
+		if (lifetime < 1) {
+			throw new IllegalArgumentException("The lifetime must be positive :: " + lifetime);
+		}
+	}
+}
@@ -0,0 +1,482 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+
+public class SpoofingPMF implements ProbMassFunction, Serializable {
+
+	/** The number of entries in p. */
+	private int N;
+
+	/** The Cumulative Mass Function built from the Bins. */
+	private double[] binCMF;
+
+	/** The hint table built for the Bin_CMF. */
+	private int[] hintTable;
+
+	/*
+	 * The finished bins are stored as parallel primitive arrays (one slot per bin) rather than as
+	 * Bin objects so a draw reads a few contiguous arrays instead of chasing a pointer per bin.
+	 */
+
+	/** The interpolated probability of the left most (greatest) entry in each bin. */
+	private double[] binFirstQ;
+
+	/** The slope of each bin's interpolating line. */
+	private double[] binSlope;
+
+	/** The number of entries in each bin. */
+	private int[] binSize;
+
+	/** The sorted position of each bin's left most entry. */
+	private int[] binStart;
+
+	/** Maps sorted positions to the original order (null when the input was presorted). */
+	private EntryTable entries;
+
+	/** The total lambda of the bins. */
+	private double lambda;
+
+
+	/**
+	 * Build a SpoofingPMF.
+	 *
+	 * @param lifetime - How many random draws this Spoofing distribution should support.
+	 * @param weights - A set of unsorted weights.
+	 */
+	public SpoofingPMF(long lifetime, double[] weights) {
+		this(lifetime, weights, null);
+	}
+
+
+	/**
+	 * Build a SpoofingPMF, sorting the weights and refining the bins in parallel.
+	 *
+	 * @param lifetime - How many random draws this Spoofing distribution should support.
+	 * @param weights - A set of unsorted weights.
+	 * @param pool - The ForkJoinPool that does the work (null to build on the calling thread).
+	 */
+	public SpoofingPMF(long lifetime, double[] weights, ForkJoinPool pool) {
+		this(SpoofingLimits.forLifetime(lifetime), weights, pool);
+	}
+
+
+	/**
+	 * Build a SpoofingPMF whose bins are refined until the given limits are met.
+	 *
+	 * @param limits - The error tolerance and (optional) maximum bin count.
+	 * @param weights - A set of unsorted weights.
+	 */
+	public SpoofingPMF(SpoofingLimits limits, double[] weights) {
+		this(limits, weights, null);
+	}
+
+
+	/**
+	 * Build a SpoofingPMF whose bins are refined until the given limits are met.
+	 *
+	 * @param limits - The error tolerance and (optional) maximum bin count.
+	 * @param weights - A set of unsorted weights.
+	 * @param pool - The ForkJoinPool that does the work (null to build on the calling thread).
+	 */
+	public SpoofingPMF(SpoofingLimits limits, double[] weights, ForkJoinPool pool) {
+
+		Util.checkPMFInputArray(weights);
+		if (limits == null) {
+			throw new IllegalArgumentException("The SpoofingLimits cannot be null");
+		}
+
+		long start = System.nanoTime();
+		this.N = weights.length;
+		Bin[] bins = Bin.buildBins(limits, weights, pool);
+		buildTables(bins, start);
+	}
+
+
+	/**
+	 * Build a SpoofingPMF from probabilities that are already normalized and sorted (see
+	 * SpoofingPMFBuilder).
+	 *
+	 * @param limits - The error tolerance and (optional) maximum bin count.
+	 * @param pValues - The probabilities in descending order (only read while refining).
+	 * @param entries - The original index of each pValue (null if they are in original order).
+	 * @param pool - The ForkJoinPool that does the work (null to build on the calling thread).
+	 */
+	SpoofingPMF(SpoofingLimits limits, SortedProbabilities pValues, EntryTable entries,
+			ForkJoinPool pool) {
+
+		long start = System.nanoTime();
+		this.N = pValues.length();
+		Bin[] bins = Bin.buildBins(limits, pValues, entries, pool);
+		buildTables(bins, start);
+	}
+
+
+	/** Build the sampling tables from the refined bins, and report the build to PMFMetrics. */
+	private void buildTables(Bin[] bins, long buildStart) {
+
+		long start = System.nanoTime();
+		storeBins(bins);
+		buildCMFandHints(bins);
+		for (Bin bin : bins) {
+			lambda += bin.getInBinLambda();
+		}
+
+		long end = System.nanoTime();
+		PMFMetrics.buildPhase("SpoofingPMF", "tables", end - start);
+		PMFMetrics.pmfBuilt("SpoofingPMF", N, getMemoryBytes(), end - buildStart);
+	}
+
+
+	/** @return - The total lambda (see SpoofingLimits) of the bins. */
+	public double getLambda() {
+		return lambda;
+	}
+
+
+	/** @return - The number of bins. */
+	public int getNumBins() {
+		return binCMF.length;
+	}
+
+
+	/** @return - The probability of each bin (in bin order). */
+	double[] getBinMasses() {
+		double[] masses = new double[binCMF.length];
+		for (int i = 0; i < masses.length; i++) {
+			masses[i] = binCMF[i] - ((i > 0) ? binCMF[i - 1] : 0);
+		}
+		return masses;
+	}
+
+
+	/** @return - The memory used by the bins and the index table, in bytes. */
+	public long getMemoryBytes() {
+		long entryBytes = (entries == null) ? 0 : EntryTable.bytesFor(N);
+		return (long) binCMF.length * SpoofingLimits.BYTES_PER_BIN + entryBytes;
+	}
+
+
+	/** Copy the interpolating line out of each Bin. */
+	private void storeBins(Bin[] bins) {
+
+		this.binFirstQ = new double[bins.length];
+		this.binSlope = new double[bins.length];
+		this.binSize = new int[bins.length];
+		this.binStart = new int[bins.length];
+
+		for (int i = 0; i < bins.length; i++) {
+			binFirstQ[i] = bins[i].getFirstQ();
+			binSlope[i] = bins[i].getSlope();
+			binSize[i] = bins[i].getSize();
+			binStart[i] = bins[i].getLeftMost();
+		}
+
+		this.entries = bins[0].getEntries();
+	}
+
+
+	/** Build the Cumulative Mass Function and Hint table for the set of Bins. */
+	private void buildCMFandHints(Bin[] bins) {
+
+		this.binCMF = new double[bins.length];
+		binCMF[0] = bins[0].getPSum();
+		for (int i = 1; i < bins.length; i++) {
+			binCMF[i] = binCMF[i - 1] + bins[i].getPSum();
+		}
+
+		//the bin sums can add up to just under 1, a draw near 1 would then walk off the end
+		double total = binCMF[bins.length - 1];
+		for (int i = bins.length - 1; i >= 0 && binCMF[i] == total; i--) {
+			binCMF[i] = 1.0;
+		}
+
+		this.hintTable = new int[bins.length];
+
+		double n = (double) bins.length;
+		for (int i = 0; i < hintTable.length; i++) {
+			hintTable[i] = getBinHint(((double) i) / n);
+		}
+
+//		System.out.println("Total Number of Bins :: " + bins.length);
+	}
+
+
+	/**
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(double uniformDraw) {
+		return sampleFromTables(binCMF, hintTable, uniformDraw);
+	}
+
+
+	/**
+	 * The top 32 bits pick the bin, the low 32 bits pick the entry within it. Unlike
+	 * getSample(double) there is no rescaling of the draw between the two (bin probabilities are
+	 * effectively rounded to multiples of 2^-32).
+	 *
+	 * @param randomBits - 64 uniformly distributed random bits
+	 *
+	 * @return A Random number between 0 and (orginalDist.length - 1)
+	 */
+	@Override
+	public int getSample(long randomBits) {
+
+		long highBits = randomBits >>> 32;
+		int hint = hintTable[(int) ((highBits * hintTable.length) >>> 32)];
+
+		double uniformDraw = highBits * 0x1.0p-32;
+		int currentNum = hint;
+		while (binCMF[currentNum] < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("SpoofingPMF", currentNum - hint);
+		}
+
+		return sampleBin(currentNum, (int) randomBits);
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(double[], int[]). */
+	@Override
+	public void sample(double[] uniformDraws, int[] out) {
+		Objects.checkFromToIndex(0, uniformDraws.length, out.length);
+
+		double[] cmf = this.binCMF;
+		int[] hints = this.hintTable;
+		for (int i = 0; i < uniformDraws.length; i++) {
+			out[i] = sampleFromTables(cmf, hints, uniformDraws[i]);
+		}
+	}
+
+
+	/** Draw a batch of samples, see ProbMassFunction.sample(RandomGenerator, int[], int, int). */
+	@Override
+	public void sample(RandomGenerator rng, int[] out, int from, int to) {
+		Objects.checkFromToIndex(from, to, out.length);
+
+		double[] cmf = this.binCMF;
+		int[] hints = this.hintTable;
+		for (int i = from; i < to; i++) {
+			out[i] = sampleFromTables(cmf, hints, rng.nextDouble());
+		}
+	}
+
+
+	/**
+	 * Find the bin for a uniform draw, then sample within it. The tables are passed in so batch
+	 * loops read binCMF and hintTable once rather than once per draw.
+	 */
+	private int sampleFromTables(double[] cmf, int[] hints, double uniformDraw) {
+
+		//get the hint
+		int hint = hints[(int) (hints.length * uniformDraw)];
+
+		//walk up the table until you are done
+		int currentNum = hint;
+		while (cmf[currentNum] < uniformDraw) {
+			currentNum++;
+		}
+		if (PMFMetrics.SAMPLE_WALKS) {
+			PMFMetrics.hintWalk("SpoofingPMF", currentNum - hint);
+		}
+
+		//transform the uniformDraw into another U(0,1) quantity
+		double binMin = (currentNum > 0) ? cmf[currentNum - 1] : 0;
+		double binMax = cmf[currentNum];
+		double newUniform = (uniformDraw - binMin) / (binMax - binMin);
+
+		return sampleBin(currentNum, newUniform);
+	}
+
+
+	/**
+	 * Return a properly distributed original entry from a bin
+	 *
+	 * @param bin - The bin being sampled
+	 * @param uniformDraw - A uniform random number between 0 and 1
+	 * @return - An entry in this bin
+	 */
+	private int sampleBin(int bin, double uniformDraw) {
+
+		int n = binSize[bin];
+		double slope = binSlope[bin];
+
+		//when Bin is exact don't use stacking
+		if (n == 2) {
+			double q1 = binFirstQ[bin];
+			double q2 = q1 + slope;
+
+			if (uniformDraw < q1 / (q1 + q2)) {
+				return entry(bin, 0);
+			} else {
+				return entry(bin, 1);
+			}
+		}
+
+		//when Bin is flat return results directly
+		if (slope == 0) {
+			return entry(bin, (int) (uniformDraw * n));
+		}
+
+		//no special case found....
+		int columnNum = (int) (uniformDraw * (n / 2.0));	//btw 0 and floor(n/2)
+
+		int candidate1 = columnNum;
+		int candidate2 = n - columnNum - 1;
+
+		double q1 = binFirstQ[bin] + slope * candidate1;
+		double q2 = binFirstQ[bin] + slope * candidate2;
+
+		double minDraw = (2.0 * columnNum) / n;
+		double maxDraw = Math.min(1.0, 2.0 * (((double) columnNum) + 1.0) / n);
+		//the above "min" hands odd cases where the maxDraw might be greater than 1
+
+		double reRandom = (maxDraw - uniformDraw) / (maxDraw - minDraw);
+
+		if (reRandom < q1 / (q1 + q2)) {
+			return entry(bin, candidate1);
+		} else {
+			return entry(bin, candidate2);
+		}
+	}
+
+
+	/**
+	 * Return a properly distributed original entry from a bin, like sampleBin(int, double) but
+	 * from 32 random bits. Multiplying the bits by n gives a slot (two per column) in the high
+	 * word and a fresh uniform in the low word, so the coin needs no division.
+	 *
+	 * @param bin - The bin being sampled
+	 * @param randomBits - 32 uniformly distributed random bits
+	 * @return - An entry in this bin
+	 */
+	private int sampleBin(int bin, int randomBits) {
+
+		int n = binSize[bin];
+		double slope = binSlope[bin];
+		long bits = randomBits & 0xFFFFFFFFL;
+
+		//when Bin is exact don't use stacking
+		if (n == 2) {
+			double q1 = binFirstQ[bin];
+			double q2 = q1 + slope;
+
+			return (bits * 0x1.0p-32 * (q1 + q2) < q1) ? entry(bin, 0) : entry(bin, 1);
+		}
+
+		long scaled = bits * n;
+		int slot = (int) (scaled >>> 32);
+
+		//when Bin is flat return results directly
+		if (slope == 0) {
+			return entry(bin, slot);
+		}
+
+		//column j covers slots 2j and 2j + 1 (the middle column of an odd bin has one slot)
+		int columnNum = slot >>> 1;
+		double withinColumn = ((slot & 1) + (scaled & 0xFFFFFFFFL) * 0x1.0p-32) * 0.5;
+
+		int candidate1 = columnNum;
+		int candidate2 = n - columnNum - 1;
+
+		double q1 = binFirstQ[bin] + slope * candidate1;
+		double q2 = binFirstQ[bin] + slope * candidate2;
+
+		return (withinColumn * (q1 + q2) < q1) ? entry(bin, candidate1) : entry(bin, candidate2);
+	}
+
+
+	/**
+	 * Split the draws between the bins over the bin CMF, then between the entries of each bin over
+	 * its interpolating line (see ProbMassFunction.drawCounts). The counts follow the spoofed
+	 * probabilities, exactly like m draws would.
+	 */
+	@Override
+	public void drawCounts(long m, RandomGenerator rng, CountConsumer counts) {
+		Util.checkDrawCount(m);
+
+		double[] cmf = this.binCMF;
+		Util.splitCounts(rng, m, 0, cmf.length,
+				(lo, hi) -> cmf[hi - 1] - ((lo > 0) ? cmf[lo - 1] : 0),
+				(bin, binDraws) -> {
+					double firstQ = binFirstQ[bin];
+					double slope = binSlope[bin];
+
+					//the line sums to (hi - lo) * firstQ + slope * (lo + ... + (hi - 1))
+					Util.splitCounts(rng, binDraws, 0, binSize[bin],
+							(lo, hi) -> (hi - lo) * (firstQ + slope * (lo + hi - 1) * 0.5),
+							(index, count) -> counts.accept(entry(bin, index), count));
+				});
+	}
+
+
+	/** Split the draws over the bins, see drawCounts(long, RandomGenerator, CountConsumer). */
+	@Override
+	public long[] drawCounts(long m, RandomGenerator rng) {
+		long[] counts = new long[N];
+		drawCounts(m, rng, (outcome, count) -> counts[outcome] = count);
+		return counts;
+	}
+
+
+	/** @return - The original index of the entry at this position within a bin. */
+	private int entry(int bin, int index) {
+		int position = binStart[bin] + index;
+		return (entries != null) ? entries.get(position) : position;
+	}
+
+
+	/** Generate a Bin hint for a specific uniform draw. */
+	private int getBinHint(double point) {
+		int val = Arrays.binarySearch(binCMF, point);
+
+		if (val < 0) {
+			return -val - 1;
+		} else {
+			return val;
+		}
+	}
+
+
+	/** Write this PMF in the format described by PMFFiles. */
+	void writeTo(PMFFiles.Output out) throws IOException {
+		int entryBits = (entries != null) ? entries.bitsPerEntry() : 0;
+		out.putHeader(PMFFiles.SPOOFING, N, binCMF.length, entryBits);
+		out.putDoubles(binCMF);
+		out.putDoubles(binFirstQ);
+		out.putDoubles(binSlope);
+		out.putInts(hintTable);
+		out.putInts(binSize);
+		out.putInts(binStart);
+		if (entries != null) {
+			entries.writeTo(out);
+		}
+	}
+
+
+	/** Use this table to understand what has been built. */
+	public void printBinInformationTable() {
+		System.out.println("CMF\t\tinBinP\t\tHint\t\ti");
+		DecimalFormat df = new DecimalFormat("#.####");
+		for (int i = 0; i < binCMF.length; i++) {
+			double binMin = (i > 0) ? binCMF[i - 1] : 0;
+			System.out.println(
+					df.format(binCMF[i])
+					+ "\t\t" + df.format(binCMF[i] - binMin)
+					+ "\t\t" + df.format(hintTable[i])
+					+ "\t\t" + i);
+		}
+	}
+}
@@ -0,0 +1,478 @@
+package probMass;
+
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.DoubleStream;
+
+
+/**
+ * A SpoofingPMFBuilder builds a SpoofingPMF from weights that are never held in a double[]: a
+ * DoubleStream, a PrimitiveIterator or a file of little-endian doubles (which is memory-mapped).
+ * The resulting PMF is identical to new SpoofingPMF(limits, weights) for the same weights.
+ *
+ * The weights are read in a fixed number of passes:
+ *
+ * 1 - The weights are checked and summed (streamed weights are also spilled to a temporary file
+ * so they can be read again).
+ *
+ * 2 - Each chunk of chunkSize weights is normalized, sorted on its own and written to a temporary
+ * file as a sorted run.
+ *
+ * 3 - The runs are merged into a temporary file of sorted probabilities and the index table.
+ *
+ * Presorted (descending) weights skip passes 2 and 3, they are only normalized into the temporary
+ * file. The bins are refined over the memory-mapped file, so the sorted probabilities stay in the
+ * page cache rather than on the heap. Building from a double[] needs roughly 28 bytes per weight
+ * at its peak (the weights, a normalized copy, the sort keys and the sorted output). Building here
+ * needs the index table (2 to 4 bytes per weight, kept by the SpoofingPMF), the bins and a few
+ * chunk sized buffers; weights that fit in one chunk are sorted on the heap like a double[].
+ *
+ * A SpoofingPMFBuilder is not thread safe, but build() may be called more than once.
+ */
+public final class SpoofingPMFBuilder {
+
+	/** The number of weights sorted at once when no chunkSize is given. */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+	/** The largest number of weights a SpoofingPMF supports. */
+	private static final int MAX_WEIGHTS = Integer.MAX_VALUE - 8;
+
+	private final SpoofingLimits limits;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private Path tempDirectory = null;
+
+	private ForkJoinPool pool = null;
+
+
+	/**
+	 * @param limits - The error tolerance and (optional) maximum bin count of the PMFs built
+	 */
+	public SpoofingPMFBuilder(SpoofingLimits limits) {
+		if (limits == null) {
+			throw new IllegalArgumentException("The SpoofingLimits cannot be null");
+		}
+		this.limits = limits;
+	}
+
+
+	/**
+	 * @param chunkSize - The number of weights sorted (in memory) at once
+	 *
+	 * @return - This builder
+	 */
+	public SpoofingPMFBuilder chunkSize(int chunkSize) {
+		if (chunkSize < 2) {
+			throw new IllegalArgumentException("The chunk size must be at least 2 :: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+
+	/**
+	 * @param tempDirectory - Where the temporary files are written (null for java.io.tmpdir)
+	 *
+	 * @return - This builder
+	 */
+	public SpoofingPMFBuilder tempDirectory(Path tempDirectory) {
+		this.tempDirectory = tempDirectory;
+		return this;
+	}
+
+
+	/**
+	 * @param pool - The ForkJoinPool that sorts the chunks and refines the bins (null to build on
+	 * the calling thread)
+	 *
+	 * @return - This builder
+	 */
+	public SpoofingPMFBuilder pool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+
+
+	/**
+	 * @param weights - A finite stream of weights, each number will be drawn with probability
+	 * (weight[i] / sumOfWeights)
+	 *
+	 * @return - A SpoofingPMF for the weights
+	 */
+	public SpoofingPMF build(DoubleStream weights) throws IOException {
+		try (DoubleStream stream = weights) {
+			return build(stream.iterator());
+		}
+	}
+
+
+	/**
+	 * @param weights - A finite sequence of weights, each number will be drawn with probability
+	 * (weight[i] / sumOfWeights)
+	 *
+	 * @return - A SpoofingPMF for the weights
+	 */
+	public SpoofingPMF build(PrimitiveIterator.OfDouble weights) throws IOException {
+
+		Path spill = createTempFile(".weights");
+		try {
+			//pass 1 -- check, sum and spill the weights
+			double[] chunk = new double[chunkSize];
+			Summary summary = new Summary();
+			try (PMFFiles.Output out = new PMFFiles.Output(
+					FileChannel.open(spill, StandardOpenOption.WRITE))) {
+				while (weights.hasNext()) {
+					int count = 0;
+					while (count < chunk.length && weights.hasNext()) {
+						chunk[count++] = weights.nextDouble();
+					}
+					summary.add(chunk, count);
+					out.putDoubles(chunk, 0, count);
+				}
+			}
+
+			try (FileChannel channel = FileChannel.open(spill, StandardOpenOption.READ)) {
+				return build(OffHeapArray.map(channel, 0, summary.n, 8), summary);
+			}
+		} finally {
+			deleteTempFile(spill);
+		}
+	}
+
+
+	/**
+	 * @param weightsFile - A file of little-endian doubles (and nothing else), each number will be
+	 * drawn with probability (weight[i] / sumOfWeights)
+	 *
+	 * @return - A SpoofingPMF for the weights
+	 */
+	public SpoofingPMF build(Path weightsFile) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(weightsFile, StandardOpenOption.READ)) {
+			long bytes = channel.size();
+			if (bytes % 8 != 0) {
+				throw new IllegalArgumentException("The file is not a whole number of doubles :: "
+						+ weightsFile + " has " + bytes + " bytes");
+			}
+			OffHeapArray weights = OffHeapArray.map(channel, 0, bytes / 8, 8);
+
+			//pass 1 -- check and sum the weights
+			double[] chunk = new double[(int) Math.min(chunkSize, Math.max(1, weights.length()))];
+			Summary summary = new Summary();
+			for (long start = 0; start < weights.length(); start += chunk.length) {
+				int count = read(weights, start, chunk);
+				summary.add(chunk, count);
+			}
+
+			return build(weights, summary);
+		}
+	}
+
+
+	/** Run passes 2 and 3 over weights that have already been checked and summed. */
+	private SpoofingPMF build(OffHeapArray weights, Summary summary) throws IOException {
+
+		if (summary.n == 0) {
+			throw new IllegalArgumentException("There must be at least 1 weight");
+		}
+
+		int n = (int) summary.n;
+		double wSum = summary.sum;
+
+		long sortStart = System.nanoTime();
+		if (n <= chunkSize) {
+			//no bigger than one chunk, so sort it in memory
+			double[] pValues = new double[n];
+			read(weights, 0, pValues);
+			for (int i = 0; i < n; i++) {
+				pValues[i] = pValues[i] / wSum;
+			}
+			if (summary.inputWasSorted) {
+				PMFMetrics.buildPhase("SpoofingPMF", "normalize", System.nanoTime() - sortStart);
+				return new SpoofingPMF(limits, SortedProbabilities.of(pValues), null, pool);
+			}
+
+			EntryTable entries = EntryTable.forSize(n);
+			sort(pValues.clone(), pValues, entries);
+			PMFMetrics.buildPhase("SpoofingPMF", "sort", System.nanoTime() - sortStart);
+			return new SpoofingPMF(limits, SortedProbabilities.of(pValues), entries, pool);
+		}
+
+		//the sorted probabilities are written to a file and mapped while the bins are refined
+		Path sorted = createTempFile(".sorted");
+		try {
+			EntryTable entries = null;
+			try (PMFFiles.Output out = new PMFFiles.Output(
+					FileChannel.open(sorted, StandardOpenOption.WRITE))) {
+				if (summary.inputWasSorted) {
+					normalize(weights, wSum, out);
+				} else {
+					entries = EntryTable.forSize(n);
+					sortAndMerge(weights, wSum, out, entries);
+				}
+			}
+			PMFMetrics.buildPhase("SpoofingPMF", (entries == null) ? "normalize" : "sort",
+					System.nanoTime() - sortStart);
+
+			try (FileChannel channel = FileChannel.open(sorted, StandardOpenOption.READ)) {
+				OffHeapArray pValues = OffHeapArray.map(channel, 0, n, 8);
+				return new SpoofingPMF(limits, SortedProbabilities.of(pValues), entries, pool);
+			}
+		} finally {
+			deleteTempFile(sorted);
+		}
+	}
+
+
+	/** Write the presorted weights, normalized, one chunk at a time. */
+	private void normalize(OffHeapArray weights, double wSum, PMFFiles.Output out)
+			throws IOException {
+
+		double[] chunk = new double[chunkSize];
+		for (long start = 0; start < weights.length(); start += chunkSize) {
+			int count = read(weights, start, chunk);
+			for (int i = 0; i < count; i++) {
+				chunk[i] = chunk[i] / wSum;
+			}
+			out.putDoubles(chunk, 0, count);
+		}
+	}
+
+
+	/** Pass 2 sorts each chunk into a run, pass 3 merges the runs into out and entries. */
+	private void sortAndMerge(OffHeapArray weights, double wSum, PMFFiles.Output out,
+			EntryTable entries) throws IOException {
+
+		int n = (int) weights.length();
+		Path runValues = createTempFile(".runs");
+		Path runEntries = createTempFile(".entries");
+		try {
+			//pass 2 -- sort each chunk into a run
+			double[] chunk = new double[chunkSize];
+			double[] sortedChunk = new double[chunkSize];
+			EntryTable chunkEntries = EntryTable.forSize(chunkSize);
+			int[] globalEntries = new int[chunkSize];
+			try (PMFFiles.Output values = new PMFFiles.Output(
+					FileChannel.open(runValues, StandardOpenOption.WRITE));
+					PMFFiles.Output indices = new PMFFiles.Output(
+							FileChannel.open(runEntries, StandardOpenOption.WRITE))) {
+				for (long start = 0; start < n; start += chunkSize) {
+					int count = read(weights, start, chunk);
+					for (int i = 0; i < count; i++) {
+						chunk[i] = chunk[i] / wSum;
+					}
+
+					//only the last chunk is short
+					if (count < chunkSize) {
+						chunk = Arrays.copyOf(chunk, count);
+						sortedChunk = new double[count];
+						chunkEntries = EntryTable.forSize(count);
+					}
+					sort(chunk, sortedChunk, chunkEntries);
+					for (int i = 0; i < count; i++) {
+						globalEntries[i] = (int) (start + chunkEntries.get(i));
+					}
+					values.putDoubles(sortedChunk, 0, count);
+					indices.putInts(globalEntries, 0, count);
+				}
+			}
+
+			//pass 3 -- merge the runs
+			try (FileChannel valueChannel = FileChannel.open(runValues, StandardOpenOption.READ);
+					FileChannel entryChannel = FileChannel.open(runEntries,
+							StandardOpenOption.READ)) {
+				merge(OffHeapArray.map(valueChannel, 0, n, 8),
+						OffHeapArray.map(entryChannel, 0, n, 4),
+						n, out, entries);
+			}
+		} finally {
+			deleteTempFile(runValues);
+			deleteTempFile(runEntries);
+		}
+	}
+
+
+	/**
+	 * Merge the sorted runs (each chunkSize long, except the last) into one descending sequence,
+	 * written to out a chunk at a time. Equal pValues keep their original order (like the
+	 * in-memory sort does).
+	 */
+	private void merge(OffHeapArray runValues, OffHeapArray runEntries, int n,
+			PMFFiles.Output out, EntryTable entries) throws IOException {
+
+		int numRuns = (int) ((n + (long) chunkSize - 1) / chunkSize);
+
+		//the next unmerged position of each run, and its pValue and original index
+		long[] next = new long[numRuns];
+		long[] end = new long[numRuns];
+		double[] headValue = new double[numRuns];
+		int[] headEntry = new int[numRuns];
+
+		//a binary heap of run ids, the run with the greatest head is at the top
+		int[] heap = new int[numRuns];
+		int heapSize = 0;
+		for (int run = 0; run < numRuns; run++) {
+			next[run] = (long) run * chunkSize;
+			end[run] = Math.min(n, next[run] + chunkSize);
+			headValue[run] = runValues.getDouble(next[run]);
+			headEntry[run] = runEntries.getInt(next[run]);
+			heap[heapSize] = run;
+			heapSize = siftUp(heap, heapSize, headValue, headEntry) + 1;
+		}
+
+		double[] merged = new double[chunkSize];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			int run = heap[0];
+			merged[count++] = headValue[run];
+			entries.set(i, headEntry[run]);
+			if (count == merged.length) {
+				out.putDoubles(merged, 0, count);
+				count = 0;
+			}
+
+			next[run]++;
+			if (next[run] < end[run]) {
+				headValue[run] = runValues.getDouble(next[run]);
+				headEntry[run] = runEntries.getInt(next[run]);
+			} else {
+				heap[0] = heap[--heapSize];
+			}
+			siftDown(heap, heapSize, headValue, headEntry);
+		}
+		out.putDoubles(merged, 0, count);
+	}
+
+
+	/** Move heap[position] up to its place, return the heap's last position. */
+	private static int siftUp(int[] heap, int position, double[] headValue, int[] headEntry) {
+
+		int last = position;
+		int run = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (!before(run, heap[parent], headValue, headEntry)) {
+				break;
+			}
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = run;
+		return last;
+	}
+
+
+	/** Move heap[0] down to its place. */
+	private static void siftDown(int[] heap, int heapSize, double[] headValue, int[] headEntry) {
+
+		if (heapSize == 0) {
+			return;
+		}
+		int run = heap[0];
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize
+					&& before(heap[child + 1], heap[child], headValue, headEntry)) {
+				child++;
+			}
+			if (!before(heap[child], run, headValue, headEntry)) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = run;
+	}
+
+
+	/** @return - True when run a's head is merged before run b's head. */
+	private static boolean before(int a, int b, double[] headValue, int[] headEntry) {
+		return headValue[a] > headValue[b]
+				|| (headValue[a] == headValue[b] && headEntry[a] < headEntry[b]);
+	}
+
+
+	/** Sort one chunk of pValues (in the pool when there is one). */
+	private void sort(double[] unsorted, double[] sortedOut, EntryTable entriesOut) {
+		if (pool == null) {
+			IndexedSort.sortDescending(unsorted, false, sortedOut, entriesOut);
+		} else {
+			pool.submit(() -> IndexedSort.sortDescending(unsorted, true, sortedOut, entriesOut))
+					.join();
+		}
+	}
+
+
+	/** Copy weights[start...] into out, return how many were copied. */
+	private static int read(OffHeapArray weights, long start, double[] out) {
+		int count = (int) Math.min(out.length, weights.length() - start);
+		for (int i = 0; i < count; i++) {
+			out[i] = weights.getDouble(start + i);
+		}
+		return count;
+	}
+
+
+	private Path createTempFile(String suffix) throws IOException {
+		return (tempDirectory == null)
+				? Files.createTempFile("probMass", suffix)
+				: Files.createTempFile(tempDirectory, "probMass", suffix);
+	}
+
+
+	/** Delete a temporary file (a file that is still mapped may not be deletable until exit). */
+	private static void deleteTempFile(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			path.toFile().deleteOnExit();
+		}
+	}
+
+
+	/** What pass 1 learns about the weights. */
+	private static class Summary {
+
+		/** The number of weights. */
+		long n = 0;
+
+		/** The sum of the weights (added in order, like Util.sum). */
+		double sum = 0;
+
+		/** True while no weight is greater than the one before it. */
+		boolean inputWasSorted = true;
+
+		/** The last weight seen. */
+		double previous = Double.POSITIVE_INFINITY;
+
+
+		void add(double[] weights, int count) {
+			if (n + count > MAX_WEIGHTS) {
+				throw new IllegalArgumentException("A SpoofingPMF supports at most " + MAX_WEIGHTS
+						+ " weights");
+			}
+			for (int i = 0; i < count; i++) {
+				double weight = weights[i];
+				Util.checkWeight(weight);
+				sum += weight;
+				if (weight > previous) {
+					inputWasSorted = false;
+				}
+				previous = weight;
+			}
+			n += count;
+		}
+	}
+}
@@ -0,0 +1,530 @@
+package probMass;
+
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.LongToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+class Util {
+
+	/** sampleInChunks draws at most this many uniforms at a time. */
+	private static final int CHUNK = 1024;
+
+	/** CumulativePMF.getSample(RandomGenerator, BitSet) rejects at most this many draws. */
+	static final int MAX_REJECTIONS = 32;
+
+	/** binomial draws at most this many trials at once, doubles hold every whole number to 2^53. */
+	private static final long MAX_EXACT_TRIALS = 1L << 53;
+
+	/** log(2 pi) / 2. */
+	private static final double HALF_LOG_2PI = 0.918938533204672741780329736;
+
+	/** stirlingTail(k) for the first few k, where the series is not accurate enough. */
+	private static final double[] STIRLING_TAILS = new double[16];
+
+	static {
+		double logFactorial = 0;
+		for (int k = 0; k < STIRLING_TAILS.length; k++) {
+			logFactorial += (k > 0) ? Math.log(k) : 0;
+			double stirling = (k + 0.5) * Math.log(k + 1) - (k + 1) + HALF_LOG_2PI;
+			STIRLING_TAILS[k] = logFactorial - stirling;
+		}
+	}
+
+
+	/** Transforms a block of uniforms into samples (see sampleInChunks). */
+	interface Batch {
+
+		void sample(double[] uniforms, int[] out, int outFrom, int count);
+	}
+
+
+	/** The probability mass of the outcomes lo to (hi - 1) of some set (see splitCounts). */
+	interface RangeMass {
+
+		double of(int lo, int hi);
+	}
+
+
+	/**
+	 * @param anArray - An array of doubles.
+	 *
+	 * @return the sum of an array.
+	 */
+	static double sum(double[] anArray) {
+		double sum = 0;
+		for (int i = 0; i < anArray.length; i++) {
+			sum += anArray[i];
+		}
+		return sum;
+	}
+
+
+	/**
+	 * Check an array of "weights" that should define a probability mass function.
+	 *
+	 * @param weights - Each entry in this array must be finite and non-negative. Also, the sum of
+	 * the entries in this array must be positive.
+	 */
+	static void checkPMFInputArray(double[] weights) {
+
+		for (double weight : weights) {
+			checkWeight(weight);
+		}
+	}
+
+
+	/** Check one entry of an array of "weights", see checkPMFInputArray. */
+	static void checkWeight(double weight) {
+
+		if (!Double.isFinite(weight)) {
+			throw new IllegalArgumentException("Non-Finite input weight :: " + weight);
+		}
+
+		if (weight < 0) {
+			throw new IllegalArgumentException("All Weights Must be non-negative :: " + weight);
+		}
+	}
+
+
+	/** Build a Cumulative Mass Function for the given weights (which will be normalized). */
+	static double[] buildCMF(double[] weights) {
+
+		checkPMFInputArray(weights);
+		
+		double sum = Util.sum(weights);
+
+		double[] cmf = new double[weights.length];
+
+		cmf[0] = weights[0];
+
+		for (int i = 1; i < weights.length; i++) {
+			cmf[i] = cmf[i - 1] + weights[i];
+		}
+		for (int i = 0; i < cmf.length; i++) {
+			cmf[i] /= sum;
+		}
+
+		return cmf;
+	}
+
+
+	/**
+	 * Build a Cumulative Mass Function off the heap, like buildCMF(double[]) but for any number of
+	 * weights.
+	 *
+	 * @param n - The number of weights
+	 * @param weights - Supplies weight i, it is called once for each i from 0 to (n - 1) in order
+	 *
+	 * @return - The normalized CMF
+	 */
+	static OffHeapArray buildCMF(long n, LongToDoubleFunction weights) {
+
+		if (n < 1) {
+			throw new IllegalArgumentException("There must be at least 1 weight :: " + n);
+		}
+
+		OffHeapArray cmf = OffHeapArray.allocate(n, 8);
+
+		double sum = 0;
+		for (long i = 0; i < n; i++) {
+			double weight = weights.applyAsDouble(i);
+			checkWeight(weight);
+			sum += weight;
+			cmf.setDouble(i, sum);
+		}
+		for (long i = 0; i < n; i++) {
+			cmf.setDouble(i, cmf.getDouble(i) / sum);
+		}
+
+		return cmf;
+	}
+
+
+	/**
+	 * The lambda_i of one entry (see Bin.computeError) when probability p is drawn with
+	 * probability q instead.
+	 *
+	 * @return - (p - q)^2 / q, 0 when both are 0 and infinity when only q is 0 (that entry can
+	 * never be drawn)
+	 */
+	static double lambdaTerm(double p, double q) {
+		if (q == 0) {
+			return (p == 0) ? 0 : Double.POSITIVE_INFINITY;
+		}
+		return (p - q) * (p - q) / q;
+	}
+
+
+	/**
+	 * Find the first entry of a CMF that is at least uniformDraw. Every step halves the range
+	 * with a conditional move instead of a branch, so unlike Arrays.binarySearch there are no
+	 * mispredictions (the number of steps only depends on cmf.length).
+	 *
+	 * @param cmf - A Cumulative Mass Function whose last entry is 1
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 *
+	 * @return - The sample
+	 */
+	static int lowerBound(double[] cmf, double uniformDraw) {
+
+		//the answer is always between base and base + len
+		int base = 0;
+		for (int len = cmf.length; len > 1; ) {
+			int half = len >>> 1;
+			base = (cmf[base + half - 1] < uniformDraw) ? base + half : base;
+			len -= half;
+		}
+		return (cmf[base] < uniformDraw) ? base + 1 : base;
+	}
+
+
+	/**
+	 * Find the first entry of cmf[lo] to cmf[hi - 1] that is at least point, or hi - 1 if there is
+	 * none (rescaling a uniform can round it just past cmf[hi - 1]). Branchless like lowerBound.
+	 *
+	 * @param cmf - A Cumulative Mass Function
+	 * @param lo - The first entry to search (inclusive)
+	 * @param hi - The last entry to search (exclusive), must be more than lo
+	 * @param point - A point between cmf[lo - 1] and cmf[hi - 1] (see rescale)
+	 *
+	 * @return - The sample
+	 */
+	static int lowerBound(double[] cmf, int lo, int hi, double point) {
+
+		//the answer is always between base and base + len
+		int base = lo;
+		for (int len = hi - lo; len > 1; ) {
+			int half = len >>> 1;
+			base = (cmf[base + half - 1] < point) ? base + half : base;
+			len -= half;
+		}
+		return base;
+	}
+
+
+	/** Check the range of a CumulativePMF.getSample(double, int, int) call. */
+	static void checkSampleRange(int lo, int hi, int size) {
+		Objects.checkFromToIndex(lo, hi, size);
+		if (lo == hi) {
+			throw new IllegalArgumentException("The range of outcomes is empty :: " + lo);
+		}
+	}
+
+
+	/**
+	 * Map a uniform onto the part of a CMF between two of its entries.
+	 *
+	 * @param uniformDraw - A uniformly distributed random number between 0 and 1
+	 * @param below - The CMF just before the range (0 for a range that starts at outcome 0)
+	 * @param top - The CMF at the last outcome of the range
+	 *
+	 * @return - A point between below and top
+	 */
+	static double rescale(double uniformDraw, double below, double top) {
+		if (!(top > below)) {
+			throw new IllegalArgumentException("The range of outcomes has no probability mass");
+		}
+		return below + uniformDraw * (top - below);
+	}
+
+
+	/** @return - The probability of outcomes lo to (hi - 1) of a CumulativePMF. */
+	static double rangeMass(CumulativePMF pmf, int lo, int hi) {
+		double below = (lo > 0) ? pmf.getCumulativeProbability(lo - 1) : 0;
+		return pmf.getCumulativeProbability(hi - 1) - below;
+	}
+
+
+	/** @return - The end (exclusive) of the run of outcomes that are not excluded from lo. */
+	static int endOfRun(BitSet excluded, int lo, int n) {
+		int next = excluded.nextSetBit(lo);
+		return (next < 0) ? n : Math.min(next, n);
+	}
+
+
+	/**
+	 * Apply lowerBound to several uniforms. Four searches run in lock step, so the cache misses
+	 * of one overlap with those of the others.
+	 *
+	 * @param out - Receives the sample for uniforms[i] at out[outFrom + i], for i < count
+	 */
+	static void lowerBounds(double[] cmf, double[] uniforms, int[] out, int outFrom, int count) {
+
+		int i = 0;
+		for (; i <= count - 4; i += 4) {
+			double u0 = uniforms[i];
+			double u1 = uniforms[i + 1];
+			double u2 = uniforms[i + 2];
+			double u3 = uniforms[i + 3];
+
+			int b0 = 0;
+			int b1 = 0;
+			int b2 = 0;
+			int b3 = 0;
+			for (int len = cmf.length; len > 1; ) {
+				int half = len >>> 1;
+				int k = half - 1;
+				b0 += (cmf[b0 + k] < u0) ? half : 0;
+				b1 += (cmf[b1 + k] < u1) ? half : 0;
+				b2 += (cmf[b2 + k] < u2) ? half : 0;
+				b3 += (cmf[b3 + k] < u3) ? half : 0;
+				len -= half;
+			}
+
+			out[outFrom + i] = (cmf[b0] < u0) ? b0 + 1 : b0;
+			out[outFrom + i + 1] = (cmf[b1] < u1) ? b1 + 1 : b1;
+			out[outFrom + i + 2] = (cmf[b2] < u2) ? b2 + 1 : b2;
+			out[outFrom + i + 3] = (cmf[b3] < u3) ? b3 + 1 : b3;
+		}
+
+		for (; i < count; i++) {
+			out[outFrom + i] = lowerBound(cmf, uniforms[i]);
+		}
+	}
+
+
+	/**
+	 * Implement ProbMassFunction.sample(RandomGenerator, int[], int, int) with a Batch by drawing
+	 * the uniforms a chunk at a time.
+	 */
+	static void sampleInChunks(RandomGenerator rng, int[] out, int from, int to, Batch batch) {
+
+		double[] uniforms = new double[Math.min(CHUNK, to - from)];
+		for (int start = from; start < to; start += uniforms.length) {
+			int count = Math.min(uniforms.length, to - start);
+			for (int i = 0; i < count; i++) {
+				uniforms[i] = rng.nextDouble();
+			}
+			batch.sample(uniforms, out, start, count);
+		}
+	}
+
+
+	/**
+	 * Implement ProbMassFunction.drawCounts by drawing every sample.
+	 *
+	 * @return - The number of times each outcome was drawn, up to the largest outcome drawn
+	 */
+	static long[] tally(ProbMassFunction pmf, long m, RandomGenerator rng) {
+		checkDrawCount(m);
+
+		long[] tally = new long[16];
+		int[] samples = new int[(int) Math.min(CHUNK, m)];
+		for (long done = 0; done < m; done += samples.length) {
+			int count = (int) Math.min(samples.length, m - done);
+			pmf.sample(rng, samples, 0, count);
+			for (int i = 0; i < count; i++) {
+				int sample = samples[i];
+				if (sample >= tally.length) {
+					tally = Arrays.copyOf(tally, Math.max(sample + 1, 2 * tally.length));
+				}
+				tally[sample]++;
+			}
+		}
+
+		int end = tally.length;
+		while (end > 0 && tally[end - 1] == 0) {
+			end--;
+		}
+		return Arrays.copyOf(tally, end);
+	}
+
+
+	static void checkDrawCount(long m) {
+		if (m < 0) {
+			throw new IllegalArgumentException("The number of draws cannot be negative :: " + m);
+		}
+	}
+
+
+	/**
+	 * Split m draws between the outcomes lo to (hi - 1): a binomial draw decides how many land in
+	 * the lower half, and each half is split the same way. Halves that get no draws are not
+	 * visited, so this makes O(min(hi - lo, m log(hi - lo))) binomial draws.
+	 *
+	 * @param rng - The source of random numbers
+	 * @param m - The number of draws to split
+	 * @param lo - The first outcome (inclusive)
+	 * @param hi - The last outcome (exclusive)
+	 * @param mass - The probability mass of a range of outcomes (need not be normalized)
+	 * @param counts - Receives each outcome that gets at least one draw
+	 */
+	static void splitCounts(RandomGenerator rng, long m, int lo, int hi, RangeMass mass,
+			ProbMassFunction.CountConsumer counts) {
+
+		if (m == 0) {
+			return;
+		}
+		if (hi - lo == 1) {
+			counts.accept(lo, m);
+			return;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		double lower = mass.of(lo, mid);
+		double total = lower + mass.of(mid, hi);
+		long inLower = binomial(rng, m, (total > 0) ? lower / total : 0.5);
+
+		splitCounts(rng, inLower, lo, mid, mass, counts);
+		splitCounts(rng, m - inLower, mid, hi, mass, counts);
+	}
+
+
+	/**
+	 * Draw from a binomial distribution. Small means count the geometric gaps between successes,
+	 * larger means use Hormann's transformed rejection with squeeze (BTRS, see HORMANN, W. 1993.
+	 * "The generation of binomial random variates". Journal of Statistical Computation and
+	 * Simulation, Vol. 46, 101 - 110), so every draw takes O(1) expected time. Both work on n as a
+	 * double, so n past 2^53 is drawn as the sum of draws of at most 2^53 trials each (one more
+	 * O(1) draw per 2^53 trials).
+	 *
+	 * @param rng - The source of random numbers
+	 * @param n - The number of trials
+	 * @param p - The probability of success (clamped to between 0 and 1)
+	 *
+	 * @return - The number of successes
+	 */
+	static long binomial(RandomGenerator rng, long n, double p) {
+
+		if (n == 0 || !(p > 0)) {
+			return 0;
+		}
+		if (p >= 1) {
+			return n;
+		}
+		if (n > MAX_EXACT_TRIALS) {
+			long successes = 0;
+			for (long left = n; left > 0; left -= MAX_EXACT_TRIALS) {
+				successes += binomial(rng, Math.min(left, MAX_EXACT_TRIALS), p);
+			}
+			return successes;
+		}
+		if (p > 0.5) {
+			return n - binomial(rng, n, 1.0 - p);
+		}
+		return (n * p < 10) ? binomialByGaps(rng, n, p) : binomialBTRS(rng, n, p);
+	}
+
+
+	/** Count the successes by skipping the geometric gaps between them, O(n * p) time. */
+	private static long binomialByGaps(RandomGenerator rng, long n, double p) {
+
+		double logQ = Math.log1p(-p);
+		long successes = 0;
+		double trials = 0;
+		while (true) {
+			//1 - nextDouble() is never 0
+			trials += Math.ceil(Math.log(1.0 - rng.nextDouble()) / logQ);
+			if (trials > n) {
+				return successes;
+			}
+			successes++;
+		}
+	}
+
+
+	/** BTRS, for p <= 0.5 and n * p >= 10. */
+	private static long binomialBTRS(RandomGenerator rng, long n, double p) {
+
+		double spq = Math.sqrt(n * p * (1.0 - p));
+		double b = 1.15 + 2.53 * spq;
+		double a = -0.0873 + 0.0248 * b + 0.01 * p;
+		double c = n * p + 0.5;
+		double vr = 0.92 - 4.2 / b;
+		double alpha = (2.83 + 5.1 / b) * spq;
+		double r = p / (1.0 - p);
+		double mode = Math.floor((n + 1) * p);
+
+		//the parts of log(f(k) / f(mode)) that do not depend on k
+		double modeTerm = (mode + 0.5) * Math.log((mode + 1) / (r * (n - mode + 1)))
+				+ stirlingTail(mode) + stirlingTail(n - mode);
+
+		while (true) {
+			double u = rng.nextDouble() - 0.5;
+			double v = rng.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			double k = Math.floor((2.0 * a / us + b) * u + c);
+
+			//the squeeze accepts most draws without a logarithm
+			if (us >= 0.07 && v <= vr) {
+				return (long) k;
+			}
+			if (k < 0 || k > n) {
+				continue;
+			}
+
+			//log(f(k) / f(mode)) without subtracting log factorials of n, which would cancel badly
+			v = Math.log(v * alpha / (a / (us * us) + b));
+			double bound = modeTerm
+					+ (n + 1) * Math.log1p((k - mode) / (n - k + 1))
+					+ (k + 0.5) * Math.log(r * (n - k + 1) / (k + 1))
+					- stirlingTail(k) - stirlingTail(n - k);
+			if (v <= bound) {
+				return (long) k;
+			}
+		}
+	}
+
+
+	/**
+	 * @return - log(k!) - ((k + 0.5) log(k + 1) - (k + 1) + log(2 pi) / 2), the error of
+	 * Stirling's approximation, for a whole number k (the series is accurate to 1e-12 past 15).
+	 */
+	private static double stirlingTail(double k) {
+
+		if (k < STIRLING_TAILS.length) {
+			return STIRLING_TAILS[(int) k];
+		}
+		double k1 = k + 1;
+		double kk = 1.0 / (k1 * k1);
+		return (1.0 / 12.0 - kk * (1.0 / 360.0 - kk / 1260.0)) / k1;
+	}
+
+
+	/**
+	 * Compute a quantile of the standard normal distribution using Acklam's rational
+	 * approximation (relative error below 1.2e-9).
+	 *
+	 * @param p - A probability strictly between 0 and 1
+	 *
+	 * @return - The z such that P(Z <= z) = p
+	 */
+	static double inverseNormalCDF(double p) {
+
+		if (!(p > 0 && p < 1)) {
+			throw new IllegalArgumentException("p must be between 0 and 1 :: " + p);
+		}
+
+		final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+				1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+		final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+				6.680131188771972e+01, -1.328068155288572e+01};
+		final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+				-2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+		final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+				3.754408661907416e+00};
+
+		double pLow = 0.02425;
+
+		if (p < pLow) {
+			//lower tail
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+					/ ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		} else if (p > 1 - pLow) {
+			//upper tail
+			double q = Math.sqrt(-2 * Math.log(1 - p));
+			return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+					/ ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		} else {
+			//central region
+			double q = p - 0.5;
+			double r = q * q;
+			return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+					/ (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package probMass;
+
+
+/**
+ * Finds the optional Vector API (jdk.incubator.vector) batch sampling kernels. They are compiled
+ * from src/vector/java only by the "vector" Maven profile, and are only used when the JVM is
+ * started with --add-modules jdk.incubator.vector -DprobMass.vector=true. Otherwise KERNELS is
+ * null and the batch methods use their scalar loops.
+ *
+ * The kernels are opt-in because JDK 17 emulates gathers rather than compiling them to gather
+ * instructions. On AVX-512 hardware the vector BinarySearchPMF search beats Arrays.binarySearch
+ * but not the interleaved scalar search (see bench.VectorSamplingBenchmark). Measure before
+ * enabling them. There is no ChanAsuaPMF kernel: its short hint walks vectorized to about 6x
+ * slower than the scalar walk.
+ */
+final class VectorSupport {
+
+	/** Batches smaller than this use the scalar loops (the vector setup is not worth it). */
+	static final int MIN_BATCH = 64;
+
+	/** The vector kernels, or null when they are unavailable. */
+	static final Kernels KERNELS = load();
+
+
+	private VectorSupport() {
+	}
+
+
+	/**
+	 * Batch sampling kernels that transform several uniforms per instruction. They must give the
+	 * same samples as the scalar loops they replace.
+	 */
+	interface Kernels {
+
+		/** out[outFrom + i] = the first entry of cmf at least uniforms[i], for each i < count. */
+		void binarySearch(double[] cmf, double[] uniforms, int[] out, int outFrom, int count);
+	}
+
+
+	private static Kernels load() {
+
+		if (!Boolean.parseBoolean(System.getProperty("probMass.vector", "false"))) {
+			return null;
+		}
+
+		try {
+			//null when the hardware has no usable vector shape
+			return (Kernels) Class.forName("probMass.VectorKernels")
+					.getDeclaredMethod("create")
+					.invoke(null);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			//not compiled in, or the jdk.incubator.vector module was not added
+			return null;
+		}
+	}
+}
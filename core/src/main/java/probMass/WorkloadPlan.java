@@ -0,0 +1,338 @@
+package probMass;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * A WorkloadPlan is the result of ProbMassFunctions.forWorkload: the ProbMassFunction it chose
+ * and a report of why. Every candidate PMF is scored by two cheap estimates taken from the weights
+ * (no candidate is built to score it):
+ *
+ * - bytes: the memory its tables use. For a SpoofingPMF this is the index table, the bins are then
+ * capped to fit the rest of the budget.
+ *
+ * - probes per draw: the number of table reads a draw makes on average. Hint tables are scored
+ * with the exact expected hint walk of these weights (one pass over their CMF), binary searches
+ * with ceil(log2(N)) and an AliasPMF with 2. A SpoofingPMF is scored with its upper bound of 5:
+ * 4 fixed probes plus a walk along the bin CMF that depends on bins that only exist once it is
+ * built, but with one hint per bin is always below 1. So a SpoofingPMF chosen for a probe target
+ * always meets it. When one is chosen, getProbesPerDraw() and the report give the cost of its
+ * actual bins.
+ *
+ * The candidates that fit the budget and meet the probe target are tried fastest first (then
+ * smallest first). Lossy candidates (FixedPointPMF, SpoofingPMF) are only accepted if their error
+ * is undetectable within lifetime draws (see SpoofingLimits). If no candidate meets both targets
+ * the fastest one that fits the budget is used, and if none fits the budget the smallest.
+ */
+public final class WorkloadPlan {
+
+	/** A SpoofingPMF draw without its bin CMF walk: hint, bin CMF, bin line and index table. */
+	private static final double SPOOFING_FIXED_PROBES = 4.0;
+
+	/** A SpoofingPMF draw at most (the bin CMF walk is less than 1 more probe). */
+	private static final double SPOOFING_PROBES = SPOOFING_FIXED_PROBES + 1.0;
+
+	/** An AliasPMF draw: probability and alias. */
+	private static final double ALIAS_PROBES = 2.0;
+
+	/** The PMF that was built. */
+	private final ProbMassFunction pmf;
+
+	/** The candidate pmf was built from. */
+	private final Candidate choice;
+
+	/** Every candidate that was scored. */
+	private final List<Candidate> candidates;
+
+	/** Why choice was made. */
+	private final String reason;
+
+	private final long lifetime;
+
+	private final long memoryBudget;
+
+	private final double maxProbesPerDraw;
+
+
+	private WorkloadPlan(ProbMassFunction pmf, Candidate choice, List<Candidate> candidates,
+			String reason, long lifetime, long memoryBudget, double maxProbesPerDraw) {
+		this.pmf = pmf;
+		this.choice = choice;
+		this.candidates = Collections.unmodifiableList(candidates);
+		this.reason = reason;
+		this.lifetime = lifetime;
+		this.memoryBudget = memoryBudget;
+		this.maxProbesPerDraw = maxProbesPerDraw;
+	}
+
+
+	/** See ProbMassFunctions.forWorkload. */
+	static WorkloadPlan plan(
+			double[] weights, long lifetime, long memoryBudget, double maxProbesPerDraw) {
+
+		Util.checkPMFInputArray(weights);
+		SpoofingLimits limits = SpoofingLimits.forLifetime(lifetime);
+		if (memoryBudget < 1) {
+			throw new IllegalArgumentException("The memory budget must be positive :: "
+					+ memoryBudget);
+		}
+		if (!(maxProbesPerDraw >= 1)) {
+			throw new IllegalArgumentException("A draw makes at least 1 probe :: "
+					+ maxProbesPerDraw);
+		}
+
+		long n = weights.length;
+		double hinted = 2.0 + expectedHintWalk(weights);
+		double searched = Math.max(1, 64 - Long.numberOfLeadingZeros(n - 1));
+		long entryBytes = isPresorted(weights) ? 0 : EntryTable.bytesFor(weights.length);
+
+		List<Candidate> all = new ArrayList<>();
+		all.add(new Candidate(Kind.ALIAS, "AliasPMF", 12 * n, ALIAS_PROBES, "exact"));
+		all.add(new Candidate(Kind.CHAN_ASUA, "ChanAsuaPMF", 12 * n, hinted, "exact"));
+		all.add(new Candidate(Kind.FIXED_POINT_HINTS, "FixedPointPMF (hints)", 8 * n, hinted,
+				"CMF rounded to 32 bits"));
+		all.add(new Candidate(Kind.SPOOFING, "SpoofingPMF", entryBytes, SPOOFING_PROBES,
+				"plus " + SpoofingLimits.BYTES_PER_BIN
+						+ " bytes per bin, probes are a bound (4 to 5 once built)"));
+		all.add(new Candidate(Kind.BINARY_SEARCH, "BinarySearchPMF", 8 * n, searched, "exact"));
+		all.add(new Candidate(Kind.FIXED_POINT, "FixedPointPMF (no hints)", 4 * n, searched,
+				"CMF rounded to 32 bits"));
+
+		//meeting both targets beats fitting the budget beats neither
+		List<Candidate> order = new ArrayList<>(all);
+		order.sort(Comparator
+				.comparingInt((Candidate c) -> c.rank(memoryBudget, maxProbesPerDraw))
+				.thenComparingDouble(c -> c.fitsBudget(memoryBudget) ? c.probesPerDraw : 0)
+				.thenComparingLong(c -> c.bytes));
+
+		StringBuilder rejected = new StringBuilder();
+		for (Candidate candidate : order) {
+			int rank = candidate.rank(memoryBudget, maxProbesPerDraw);
+			ProbMassFunction built = candidate.build(weights, limits, memoryBudget, lifetime);
+			if (built == null) {
+				rejected.append(candidate.name).append(" was rejected (its error could be detected"
+						+ " within the lifetime). ");
+				continue;
+			}
+
+			String reason = (rank == 0)
+					? "The fastest candidate that fits the memory budget and the probe target."
+					: (rank == 1)
+							? "No candidate that meets the probe target could be used, this is the"
+									+ " fastest that fits the memory budget."
+							: "No candidate that fits the memory budget could be used, this is the"
+									+ " smallest.";
+			return new WorkloadPlan(built, candidate, all, rejected + reason, lifetime,
+					memoryBudget, maxProbesPerDraw);
+		}
+
+		//the exact candidates never return null
+		throw new IllegalStateException("No candidate could be built");
+	}
+
+
+	/**
+	 * The expected number of CMF entries a draw walks past after its hint, when there is one hint
+	 * per entry (ChanAsuaPMF). A draw in hint cell c walks past every CMF entry x with c / N <= x <
+	 * u, so entry x (in cell c) is walked past with probability (c + 1 - x * N) / N.
+	 */
+	static double expectedHintWalk(double[] weights) {
+
+		double n = weights.length;
+		double sum = Util.sum(weights);
+
+		double walk = 0;
+		double cumulative = 0;
+		for (int i = 0; i < weights.length - 1; i++) {
+			cumulative += weights[i];
+			double scaled = (cumulative / sum) * n;
+			if (scaled < n) {
+				walk += 1.0 - (scaled - Math.floor(scaled));
+			}
+		}
+		return walk / n;
+	}
+
+
+	/** @return - True if the weights never increase (a SpoofingPMF then needs no index table). */
+	private static boolean isPresorted(double[] weights) {
+		for (int i = 1; i < weights.length; i++) {
+			if (weights[i] > weights[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/** @return - The PMF that was chosen. */
+	public ProbMassFunction getPMF() {
+		return pmf;
+	}
+
+
+	/** @return - The candidate that was chosen. */
+	public Candidate getChoice() {
+		return choice;
+	}
+
+
+	/** @return - Every candidate that was considered. */
+	public List<Candidate> getCandidates() {
+		return candidates;
+	}
+
+
+	/** @return - Why the choice was made. */
+	public String getReason() {
+		return reason;
+	}
+
+
+	/** @return - The memory used by the chosen PMF's tables, in bytes (exact, not estimated). */
+	public long getBytes() {
+		return (pmf instanceof SpoofingPMF) ? ((SpoofingPMF) pmf).getMemoryBytes() : choice.bytes;
+	}
+
+
+	/**
+	 * @return - The average number of table reads a draw from the chosen PMF makes (measured on
+	 * the bins of a SpoofingPMF, the candidate's estimate otherwise).
+	 */
+	public double getProbesPerDraw() {
+		return (pmf instanceof SpoofingPMF)
+				? SPOOFING_FIXED_PROBES + expectedHintWalk(((SpoofingPMF) pmf).getBinMasses())
+				: choice.probesPerDraw;
+	}
+
+
+	/** @return - A report of the choice and every candidate. */
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("Chose ").append(choice.name).append(" (").append(getBytes()).append(" bytes")
+				.append(String.format(", %.2f probes per draw)%n", getProbesPerDraw()));
+		sb.append(String.format("Lifetime %d draws, memory budget %d bytes, target %.2f probes"
+				+ " per draw%n", lifetime, memoryBudget, maxProbesPerDraw));
+		sb.append(reason).append(String.format("%n"));
+		for (Candidate candidate : candidates) {
+			sb.append(String.format("  %s%n", candidate));
+		}
+		return sb.toString();
+	}
+
+
+	private enum Kind {
+		ALIAS, CHAN_ASUA, FIXED_POINT_HINTS, SPOOFING, BINARY_SEARCH, FIXED_POINT
+	}
+
+
+	/** One candidate PMF and its estimated cost. */
+	public static final class Candidate {
+
+		private final Kind kind;
+
+		private final String name;
+
+		private final long bytes;
+
+		private final double probesPerDraw;
+
+		private final String note;
+
+
+		private Candidate(Kind kind, String name, long bytes, double probesPerDraw, String note) {
+			this.kind = kind;
+			this.name = name;
+			this.bytes = bytes;
+			this.probesPerDraw = probesPerDraw;
+			this.note = note;
+		}
+
+
+		/** @return - The kind of PMF, e.g. "ChanAsuaPMF". */
+		public String getName() {
+			return name;
+		}
+
+
+		/** @return - The estimated memory used by its tables, in bytes. */
+		public long getBytes() {
+			return bytes;
+		}
+
+
+		/** @return - The estimated number of table reads per draw. */
+		public double getProbesPerDraw() {
+			return probesPerDraw;
+		}
+
+
+		/** @return - Whether the PMF is exact, and how the byte estimate is incomplete. */
+		public String getNote() {
+			return note;
+		}
+
+
+		boolean fitsBudget(long memoryBudget) {
+			return bytes <= memoryBudget;
+		}
+
+
+		/** @return - 0 when both targets are met, 1 when only the budget is, 2 otherwise. */
+		int rank(long memoryBudget, double maxProbesPerDraw) {
+			if (!fitsBudget(memoryBudget)) {
+				return 2;
+			}
+			return (probesPerDraw <= maxProbesPerDraw) ? 0 : 1;
+		}
+
+
+		/** @return - The PMF, or null if it is lossy and its error could be detected. */
+		ProbMassFunction build(
+				double[] weights, SpoofingLimits limits, long memoryBudget, long lifetime) {
+
+			switch (kind) {
+				case ALIAS:
+					return new AliasPMF(weights);
+				case CHAN_ASUA:
+					return new ChanAsuaPMF(weights);
+				case BINARY_SEARCH:
+					return new BinarySearchPMF(weights);
+				case FIXED_POINT_HINTS:
+				case FIXED_POINT:
+					FixedPointPMF fixedPoint =
+							new FixedPointPMF(weights, kind == Kind.FIXED_POINT_HINTS);
+					return ProbMassFunctions.withinLimit(lifetime, fixedPoint.getLambda())
+							? fixedPoint
+							: null;
+				case SPOOFING:
+					//cap the bins to the rest of the budget (unless the index table alone is over)
+					SpoofingLimits capped = fitsBudget(memoryBudget)
+							? limits.withBinMemoryBudget(memoryBudget - bytes)
+							: limits;
+					SpoofingPMF spoofing = new SpoofingPMF(capped, weights);
+
+					//refinement stops short of the error limit at the bin cap, or when the bins are
+					//too small to split (the slack covers summing the bins in another order)
+					return (spoofing.getLambda() <= limits.getErrorLimit() * (1 + 1e-9))
+							? spoofing
+							: null;
+				default:
+					throw new IllegalStateException("Unknown candidate :: " + kind);
+			}
+		}
+
+
+		@Override
+		public String toString() {
+			return String.format("%-26s %14d bytes %8.2f probes per draw   %s", name, bytes,
+					probesPerDraw, note);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Many threads sampling one shared ProbMassFunction must each get exactly the samples they would
+ * get alone, and together draw from the right distribution.
+ */
+public class ConcurrentSamplerTest {
+
+	private static final int THREADS = 8;
+
+	private static final int DRAWS_PER_THREAD = 250_000;
+
+	private static final double[] WEIGHTS = Samples.weights(1000, 59L);
+
+
+	@Test
+	public void eachStreamIsReproducibleAcrossThreads() throws Exception {
+		ProbMassFunction[] pmfs = {
+				new ChanAsuaPMF(WEIGHTS),
+				new AliasPMF(WEIGHTS),
+				new FixedPointPMF(WEIGHTS, true),
+				new SpoofingPMF(1_000_000L, WEIGHTS)
+		};
+
+		for (ProbMassFunction pmf : pmfs) {
+			//stream i only depends on the seed and on being the i-th stream split off
+			ConcurrentSampler serial = new ConcurrentSampler(pmf, 61L);
+			int[][] alone = new int[THREADS][DRAWS_PER_THREAD];
+			for (int t = 0; t < THREADS; t++) {
+				fill(serial.newStream(), alone[t]);
+			}
+
+			ConcurrentSampler shared = new ConcurrentSampler(pmf, 61L);
+			List<ConcurrentSampler.Stream> streams = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				streams.add(shared.newStream());
+			}
+			int[][] together = new int[THREADS][DRAWS_PER_THREAD];
+			runTogether(t -> fill(streams.get(t), together[t]));
+
+			for (int t = 0; t < THREADS; t++) {
+				assertArrayEquals(alone[t], together[t], pmf.getClass().getSimpleName()
+						+ " stream " + t);
+			}
+		}
+	}
+
+
+	@Test
+	public void pooledSamplesFitTheWeights() throws Exception {
+		ConcurrentSampler sampler = new ConcurrentSampler(new ChanAsuaPMF(WEIGHTS), 67L);
+		int[] out = new int[THREADS * DRAWS_PER_THREAD];
+
+		runTogether(t -> sampler.sample(out, t * DRAWS_PER_THREAD, (t + 1) * DRAWS_PER_THREAD));
+
+		Samples.assertFits("ConcurrentSampler.sample", Samples.count(out, WEIGHTS.length),
+				WEIGHTS, false);
+	}
+
+
+	@Test
+	public void parallelSampleOnlyDependsOnTheSeed() {
+		ProbMassFunction pmf = new SpoofingPMF(10_000_000L, WEIGHTS);
+		int[] first = new int[THREADS * DRAWS_PER_THREAD];
+		int[] second = new int[first.length];
+
+		new ConcurrentSampler(pmf, 71L).parallelSample(first);
+		new ConcurrentSampler(pmf, 71L).parallelSample(second);
+
+		assertArrayEquals(first, second);
+		Samples.assertFits("ConcurrentSampler.parallelSample",
+				Samples.count(first, WEIGHTS.length), WEIGHTS, true);
+	}
+
+
+	/** Mix single draws and batches, so both paths race on the shared PMF. */
+	private static void fill(ConcurrentSampler.Stream stream, int[] out) {
+		for (int i = 0; i < out.length; i += 1000) {
+			out[i] = stream.getSample();
+			stream.sample(out, i + 1, Math.min(i + 1000, out.length));
+		}
+	}
+
+
+	/** The work one thread does, given its number. */
+	private interface Worker {
+
+		void run(int thread) throws Exception;
+	}
+
+
+	/** Start THREADS threads at the same moment and wait for them all (rethrowing failures). */
+	private static void runTogether(Worker worker) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				results.add(executor.submit(() -> {
+					start.await();
+					worker.run(thread);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+
+/** Range and masked draws from every CumulativePMF must follow the weights they allow. */
+public class CumulativePMFTest {
+
+	private static final int N = 1000;
+
+	private static final int DRAWS = 1_000_000;
+
+	private static final double[] WEIGHTS = Samples.weights(N, 23L);
+
+
+	/** @return - Every in-memory CumulativePMF, by name. */
+	private static Map<String, CumulativePMF> pmfs() {
+		Map<String, CumulativePMF> pmfs = new LinkedHashMap<>();
+		pmfs.put("BinarySearchPMF", new BinarySearchPMF(WEIGHTS));
+		pmfs.put("ChanAsuaPMF", new ChanAsuaPMF(WEIGHTS));
+		pmfs.put("FloatPMF (hints)", new FloatPMF(WEIGHTS, true));
+		pmfs.put("FloatPMF", new FloatPMF(WEIGHTS, false));
+		pmfs.put("FixedPointPMF (hints)", new FixedPointPMF(WEIGHTS, true));
+		pmfs.put("FixedPointPMF", new FixedPointPMF(WEIGHTS, false));
+		return pmfs;
+	}
+
+
+	@Test
+	public void theCMFMatchesTheSamples() {
+		pmfs().forEach((name, pmf) -> {
+			assertEquals(N, pmf.size(), name);
+			assertEquals(1.0, pmf.getCumulativeProbability(N - 1), name);
+
+			double below = 0;
+			for (int i = 0; i < N; i++) {
+				double top = pmf.getCumulativeProbability(i);
+				if (top > below) {
+					assertEquals(i, pmf.getSample((below + top) * 0.5), name + " outcome " + i);
+				}
+				below = top;
+			}
+		});
+	}
+
+
+	@Test
+	public void rangeDrawsFitTheWeights() {
+		int lo = 100;
+		int hi = 400;
+		double[] allowed = new double[N];
+		System.arraycopy(WEIGHTS, lo, allowed, lo, hi - lo);
+
+		pmfs().forEach((name, pmf) -> {
+			SplittableRandom rng = new SplittableRandom(5L);
+			long[] counts = new long[N];
+			for (int i = 0; i < DRAWS; i++) {
+				counts[pmf.getSample(rng.nextDouble(), lo, hi)]++;
+			}
+			Samples.assertFits(name + " getSample(u, lo, hi)", counts, allowed, false);
+			assertEquals(hi - 1, pmf.getSample(Math.nextDown(1.0), lo, hi), name);
+		});
+	}
+
+
+	@Test
+	public void maskedDrawsFitTheWeights() {
+		BitSet excluded = new BitSet();
+		excluded.set(500, 900);
+		for (int i = 0; i < N; i += 3) {
+			excluded.set(i);
+		}
+		double[] allowed = WEIGHTS.clone();
+		for (int i = excluded.nextSetBit(0); i >= 0; i = excluded.nextSetBit(i + 1)) {
+			allowed[i] = 0;
+		}
+
+		pmfs().forEach((name, pmf) -> {
+			SplittableRandom rng = new SplittableRandom(6L);
+			long[] rejecting = new long[N];
+			long[] walking = new long[N];
+			for (int i = 0; i < DRAWS; i++) {
+				rejecting[pmf.getSample(rng, excluded)]++;
+				walking[pmf.getSample(rng.nextDouble(), excluded)]++;
+			}
+			Samples.assertFits(name + " getSample(rng, excluded)", rejecting, allowed, false);
+			Samples.assertFits(name + " getSample(u, excluded)", walking, allowed, false);
+		});
+	}
+
+
+	@Test
+	public void emptyRangesAreRejected() {
+		pmfs().forEach((name, pmf) -> {
+			assertThrows(IllegalArgumentException.class, () -> pmf.getSample(0.5, 10, 10), name);
+			assertThrows(IndexOutOfBoundsException.class, () -> pmf.getSample(0.5, 0, N + 1), name);
+			//outcome 5 has weight 0
+			assertThrows(IllegalArgumentException.class, () -> pmf.getSample(0.5, 5, 6), name);
+		});
+	}
+}
@@ -0,0 +1,177 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+
+/** Every ProbMassFunction must draw from its weights, through every sampling entry point. */
+public class DistributionTest {
+
+	private static final int N = 1000;
+
+	private static final int DRAWS = 1_000_000;
+
+	private static final double[] WEIGHTS = Samples.weights(N, 17L);
+
+
+	/** @return - A builder for every PMF, by name. Lossy PMFs are built for DRAWS draws or more. */
+	private static Map<String, Function<double[], ProbMassFunction>> exactPMFs() {
+		Map<String, Function<double[], ProbMassFunction>> pmfs = new LinkedHashMap<>();
+		pmfs.put("BinarySearchPMF", BinarySearchPMF::new);
+		pmfs.put("ChanAsuaPMF", ChanAsuaPMF::new);
+		pmfs.put("AliasPMF", AliasPMF::new);
+		pmfs.put("DynamicPMF", DynamicPMF::new);
+		pmfs.put("PMFBank", w -> ProbMassFunctions.pmfBank(new double[][] {{1, 2}, w}).asPMF(1));
+		return pmfs;
+	}
+
+
+	private static Map<String, Function<double[], ProbMassFunction>> lossyPMFs() {
+		Map<String, Function<double[], ProbMassFunction>> pmfs = new LinkedHashMap<>();
+		pmfs.put("FloatPMF (hints)", w -> new FloatPMF(w, true));
+		pmfs.put("FloatPMF", w -> new FloatPMF(w, false));
+		pmfs.put("FixedPointPMF (hints)", w -> new FixedPointPMF(w, true));
+		pmfs.put("FixedPointPMF", w -> new FixedPointPMF(w, false));
+		pmfs.put("SpoofingPMF", w -> new SpoofingPMF(DRAWS, w));
+		pmfs.put("SpoofingPMF (pool)", w -> new SpoofingPMF(DRAWS, w, ForkJoinPool.commonPool()));
+		pmfs.put("LifetimeAwarePMF", w -> new LifetimeAwarePMF(DRAWS, w));
+		return pmfs;
+	}
+
+
+	@Test
+	public void batchSamplesFitTheWeights() {
+		forEachPMF((name, pmf, exact) -> {
+			int[] out = new int[DRAWS];
+			pmf.sample(new SplittableRandom(1L), out, 0, DRAWS);
+			Samples.assertFits(name, Samples.count(out, N), WEIGHTS, !exact);
+		});
+	}
+
+
+	@Test
+	public void randomBitSamplesFitTheWeights() {
+		forEachPMF((name, pmf, exact) -> {
+			SplittableRandom rng = new SplittableRandom(2L);
+			long[] fromLongs = new long[N];
+			long[] fromInts = new long[N];
+			for (int i = 0; i < DRAWS; i++) {
+				fromLongs[pmf.getSample(rng.nextLong())]++;
+				fromInts[pmf.getSample(rng.nextInt())]++;
+			}
+			Samples.assertFits(name + " getSample(long)", fromLongs, WEIGHTS, !exact);
+			Samples.assertFits(name + " getSample(int)", fromInts, WEIGHTS, !exact);
+		});
+	}
+
+
+	@Test
+	public void drawCountsFitTheWeights() {
+		forEachPMF((name, pmf, exact) -> {
+			long[] counts = pmf.drawCounts(DRAWS, new SplittableRandom(3L));
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			assertEquals(DRAWS, total, name);
+			Samples.assertFits(name + " drawCounts", java.util.Arrays.copyOf(counts, N), WEIGHTS,
+					!exact);
+		});
+	}
+
+
+	@Test
+	public void binomialsPast2To53ReachEveryCount() {
+		SplittableRandom rng = new SplittableRandom(5L);
+		long n = (1L << 62) + 12_345;
+		int draws = 2000;
+		for (double p : new double[] {0.3, 0.7}) {
+			double mean = 0;
+			int odd = 0;
+			for (int i = 0; i < draws; i++) {
+				long successes = Util.binomial(rng, n, p);
+				assertTrue(successes >= 0 && successes <= n, "p = " + p + " :: " + successes);
+				mean += (double) successes / draws;
+				odd += (int) (successes & 1);
+			}
+			double sd = Math.sqrt(n * p * (1.0 - p) / draws);
+			assertTrue(Math.abs(mean - n * p) < 5 * sd, "p = " + p + " :: " + (mean - n * p) / sd);
+
+			//a draw made in doubles this large could only land on multiples of 256
+			assertTrue(Math.abs(odd - draws / 2) < 5 * Math.sqrt(draws / 4.0), "odd draws " + odd);
+		}
+	}
+
+
+	@Test
+	public void batchesMatchSingleDraws() {
+		SplittableRandom rng = new SplittableRandom(4L);
+		double[] uniforms = new double[10_000];
+		for (int i = 0; i < uniforms.length; i++) {
+			uniforms[i] = rng.nextDouble();
+		}
+		uniforms[0] = 0.0;
+		uniforms[1] = Math.nextDown(1.0);
+
+		forEachPMF((name, pmf, exact) -> {
+			int[] batch = new int[uniforms.length];
+			pmf.sample(uniforms, batch);
+			for (int i = 0; i < uniforms.length; i++) {
+				assertEquals(pmf.getSample(uniforms[i]), batch[i], name + " at " + uniforms[i]);
+			}
+		});
+	}
+
+
+	@Test
+	public void offHeapPMFsMatchTheirOnHeapForms() {
+		SplittableRandom rng = new SplittableRandom(5L);
+		LongProbMassFunction offHeapBinary = new OffHeapBinarySearchPMF(N, i -> WEIGHTS[(int) i]);
+		LongProbMassFunction offHeapChanAsua = new OffHeapChanAsuaPMF(N, i -> WEIGHTS[(int) i]);
+		ProbMassFunction binary = new BinarySearchPMF(WEIGHTS);
+		ProbMassFunction chanAsua = new ChanAsuaPMF(WEIGHTS);
+
+		assertEquals(N, offHeapBinary.size());
+		for (int i = 0; i < 100_000; i++) {
+			double u = rng.nextDouble();
+			assertEquals(binary.getSample(u), offHeapBinary.getSample(u));
+			assertEquals(chanAsua.getSample(u), offHeapChanAsua.getSample(u));
+		}
+	}
+
+
+	@Test
+	public void dynamicPMFFollowsUpdates() {
+		DynamicPMF pmf = new DynamicPMF(WEIGHTS);
+		double[] updated = WEIGHTS.clone();
+		for (int i = 0; i < N; i += 3) {
+			updated[i] = (i % 2 == 0) ? 0 : 7 * updated[i] + 1;
+			pmf.updateWeight(i, updated[i]);
+		}
+
+		int[] out = new int[DRAWS];
+		pmf.sample(new SplittableRandom(6L), out, 0, DRAWS);
+		Samples.assertFits("DynamicPMF after updates", Samples.count(out, N), updated, false);
+	}
+
+
+	/** Receives each PMF built from WEIGHTS. */
+	private interface PMFCheck {
+
+		void check(String name, ProbMassFunction pmf, boolean exact);
+	}
+
+
+	private static void forEachPMF(PMFCheck check) {
+		exactPMFs().forEach((name, build) -> check.check(name, build.apply(WEIGHTS), true));
+		lossyPMFs().forEach((name, build) -> check.check(name, build.apply(WEIGHTS), false));
+	}
+}
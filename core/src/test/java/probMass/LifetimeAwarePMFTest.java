@@ -0,0 +1,142 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+
+/** A LifetimeAwarePMF must grow its lifetime as it is drawn from, and survive failed rebuilds. */
+public class LifetimeAwarePMFTest {
+
+	private static final double[] WEIGHTS = Samples.weights(1000, 73L);
+
+	/** How long to wait for a background rebuild, in milliseconds. */
+	private static final long TIMEOUT = 60_000;
+
+
+	@Test
+	public void theLifetimeGrowsWithTheDraws() throws Exception {
+		LifetimeAwarePMF pmf = new LifetimeAwarePMF(10_000L, WEIGHTS);
+		drawUntilRebuilt(pmf, 10_000L);
+		assertTrue(pmf.getLifetime() >= 10_000L * LifetimeAwarePMF.LIFETIME_GROWTH);
+	}
+
+
+	@Test
+	public void aDeserializedCopyKeepsRebuilding() throws Exception {
+		LifetimeAwarePMF pmf = new LifetimeAwarePMF(10_000L, WEIGHTS);
+		pmf.drawCounts(4_000L, new SplittableRandom(1L));
+
+		LifetimeAwarePMF copy = roundTrip(pmf);
+		assertEquals(4_000L, copy.getDraws());
+		drawUntilRebuilt(copy, 10_000L);
+	}
+
+
+	@Test
+	public void rejectedRebuildsAreReportedAndBackedOff() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(1);
+		LifetimeAwarePMF pmf = new LifetimeAwarePMF(10_000L, WEIGHTS, pool);
+		pool.shutdown();
+
+		List<Long> failed = Collections.synchronizedList(new ArrayList<>());
+		PMFMetrics.setListener(new PMFListener() {
+			@Override
+			public void rebuildFailed(long lifetime, Throwable cause) {
+				assertTrue(cause instanceof RejectedExecutionException, cause.toString());
+				failed.add(lifetime);
+			}
+		});
+		try {
+			int[] out = new int[100];
+			SplittableRandom rng = new SplittableRandom(2L);
+			for (int i = 0; i < 10_000; i++) {
+				pmf.sample(rng, out, 0, out.length);
+			}
+		} finally {
+			PMFMetrics.setListener(null);
+		}
+
+		//each retry aims lower than the last failure, and they stop well before the draws do
+		assertEquals(10_000L, pmf.getLifetime());
+		assertTrue(!failed.isEmpty() && failed.size() <= 8, failed.toString());
+		for (int i = 1; i < failed.size(); i++) {
+			assertTrue(failed.get(i) < failed.get(i - 1), failed.toString());
+		}
+	}
+
+
+	@Test
+	public void aFailedBuildIsCaughtAndReported() throws Exception {
+		LifetimeAwarePMF pmf = new LifetimeAwarePMF(10_000L, WEIGHTS);
+
+		List<Throwable> causes = Collections.synchronizedList(new ArrayList<>());
+		PMFMetrics.setListener(new PMFListener() {
+			@Override
+			public void pmfBuilt(String kind, long outcomes, long bytes, long nanos) {
+				throw new IllegalStateException("No memory for this build");
+			}
+
+
+			@Override
+			public void rebuildFailed(long lifetime, Throwable cause) {
+				causes.add(cause);
+			}
+		});
+		try {
+			pmf.drawCounts(6_000L, new SplittableRandom(3L));
+			long deadline = System.currentTimeMillis() + TIMEOUT;
+			while (causes.isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} finally {
+			PMFMetrics.setListener(null);
+		}
+
+		assertEquals(1, causes.size());
+		assertTrue(causes.get(0) instanceof IllegalStateException);
+		assertEquals(10_000L, pmf.getLifetime());
+		pmf.getSample(0.5);
+	}
+
+
+	/** Draw in batches (each batch checks the count) until the lifetime grows past lifetime. */
+	private static void drawUntilRebuilt(LifetimeAwarePMF pmf, long lifetime)
+			throws InterruptedException {
+		int[] out = new int[1000];
+		SplittableRandom rng = new SplittableRandom(4L);
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (pmf.getLifetime() == lifetime) {
+			assertTrue(System.currentTimeMillis() < deadline, "No rebuild after "
+					+ pmf.getDraws() + " draws");
+			pmf.sample(rng, out, 0, out.length);
+			Thread.sleep(1);
+		}
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T object) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in =
+				new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+}
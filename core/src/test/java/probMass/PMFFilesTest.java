@@ -0,0 +1,188 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+
+/** Saved, mapped and deserialized PMFs must draw exactly what the PMF they came from draws. */
+public class PMFFilesTest {
+
+	private static final double[] WEIGHTS = Samples.weights(5000, 23L);
+
+	private static final int DRAWS = 200_000;
+
+
+	@Test
+	public void mappedPMFsMatchTheInMemoryPMFs() throws IOException {
+		ProbMassFunction[] pmfs = {
+				new BinarySearchPMF(WEIGHTS),
+				new ChanAsuaPMF(WEIGHTS),
+				new SpoofingPMF(1_000_000L, WEIGHTS),
+				new SpoofingPMF(1_000_000L, sorted(WEIGHTS))
+		};
+
+		for (ProbMassFunction pmf : pmfs) {
+			Path file = Files.createTempFile("pmf", ".bin");
+			try {
+				PMFFiles.write(pmf, file);
+				ProbMassFunction mapped = PMFFiles.map(file);
+				assertSameDraws(pmf, mapped);
+				assertSameDraws(pmf, roundTrip(mapped));
+			} finally {
+				Files.delete(file);
+			}
+		}
+	}
+
+
+	@Test
+	public void serializedPMFsMatchTheOriginals() throws IOException {
+		ProbMassFunction[] pmfs = {
+				new BinarySearchPMF(WEIGHTS),
+				new ChanAsuaPMF(WEIGHTS),
+				new AliasPMF(WEIGHTS),
+				new FloatPMF(WEIGHTS, true),
+				new FixedPointPMF(WEIGHTS, true),
+				new SpoofingPMF(1_000_000L, WEIGHTS)
+		};
+
+		for (ProbMassFunction pmf : pmfs) {
+			assertSameDraws(pmf, roundTrip(pmf));
+		}
+	}
+
+
+	@Test
+	public void mappedBanksMatchTheInMemoryBank() throws IOException {
+		PMFBankBuilder builder = new PMFBankBuilder();
+		SplittableRandom rng = new SplittableRandom(9L);
+		for (int i = 0; i < 50; i++) {
+			builder.add(Samples.weights(1 + rng.nextInt(300), i));
+		}
+		PMFBank bank = builder.build();
+
+		Path file = Files.createTempFile("bank", ".bin");
+		try {
+			PMFFiles.write(bank, file);
+			PMFBank mapped = PMFFiles.mapBank(file);
+			PMFBank deserialized = roundTrip(mapped);
+
+			assertEquals(bank.size(), mapped.size());
+			for (int id = 0; id < bank.size(); id++) {
+				assertEquals(bank.size(id), mapped.size(id));
+				ProbMassFunction expected = new ChanAsuaPMF(Samples.weights(bank.size(id), id));
+				for (int i = 0; i < 2000; i++) {
+					double u = rng.nextDouble();
+					int sample = expected.getSample(u);
+					assertEquals(sample, bank.getSample(id, u));
+					assertEquals(sample, mapped.getSample(id, u));
+					assertEquals(sample, deserialized.getSample(id, u));
+				}
+			}
+
+			for (PMFBank b : new PMFBank[] {bank, mapped, deserialized}) {
+				for (int id : new int[] {-1, b.size()}) {
+					assertThrows(IndexOutOfBoundsException.class, () -> b.getSample(id, 0.5));
+					assertThrows(IndexOutOfBoundsException.class,
+							() -> b.sample(id, new double[] {0.5}, new int[1]));
+					assertThrows(IndexOutOfBoundsException.class,
+							() -> b.sample(new int[] {0, id}, new double[] {0.5, 0.5}, new int[2]));
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+
+	@Test
+	public void damagedFilesAreRejected() throws IOException {
+		Path file = Files.createTempFile("pmf", ".bin");
+		try {
+			PMFFiles.write(new ChanAsuaPMF(WEIGHTS), file);
+			byte[] bytes = Files.readAllBytes(file);
+
+			//truncated
+			Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 8));
+			assertThrows(IOException.class, () -> PMFFiles.map(file));
+
+			//not a PMF file
+			bytes[0] ^= 1;
+			Files.write(file, bytes);
+			assertThrows(IOException.class, () -> PMFFiles.map(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+
+	/** Both PMFs must give the same sample for every uniform. */
+	private static void assertSameDraws(ProbMassFunction expected, ProbMassFunction actual) {
+		SplittableRandom rng = new SplittableRandom(7L);
+		String name = actual.getClass().getSimpleName();
+		for (int i = 0; i < DRAWS; i++) {
+			double u = rng.nextDouble();
+			assertEquals(expected.getSample(u), actual.getSample(u), name + " at " + u);
+		}
+		assertTrue(expected.getSample(Math.nextDown(1.0)) == actual.getSample(Math.nextDown(1.0)));
+
+		for (int i = 0; i < DRAWS; i++) {
+			long bits = rng.nextLong();
+			assertEquals(expected.getSample(bits), actual.getSample(bits), name + " at " + bits);
+		}
+
+		double[] uniforms = rng.doubles(DRAWS).toArray();
+		int[] expectedBatch = new int[DRAWS];
+		int[] actualBatch = new int[DRAWS];
+		expected.sample(uniforms, expectedBatch);
+		actual.sample(uniforms, actualBatch);
+		assertArrayEquals(expectedBatch, actualBatch, name + " batch");
+
+		expected.sample(new SplittableRandom(11L), expectedBatch, 0, DRAWS);
+		actual.sample(new SplittableRandom(11L), actualBatch, 0, DRAWS);
+		assertArrayEquals(expectedBatch, actualBatch, name + " batch");
+
+		assertArrayEquals(expected.drawCounts(1_000_000L, new SplittableRandom(13L)),
+				actual.drawCounts(1_000_000L, new SplittableRandom(13L)), name + " drawCounts");
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in =
+				new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+
+	private static double[] sorted(double[] weights) {
+		double[] sorted = weights.clone();
+		java.util.Arrays.sort(sorted);
+		for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+			double swap = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = swap;
+		}
+		return sorted;
+	}
+}
@@ -0,0 +1,67 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/** Every PMF, bank and mapped file must report its build to the PMFListener. */
+public class PMFMetricsTest {
+
+	private static final double[] WEIGHTS = Samples.weights(500, 79L);
+
+
+	@Test
+	public void everyBuildIsReported() throws IOException {
+		List<String> built = Collections.synchronizedList(new ArrayList<>());
+		PMFMetrics.setListener(new PMFListener() {
+			@Override
+			public void pmfBuilt(String pmf, long outcomes, long bytes, long nanos) {
+				assertTrue(outcomes > 0 && bytes > 0 && nanos >= 0, pmf);
+				built.add(pmf);
+			}
+		});
+
+		Path file = Files.createTempFile("metrics", ".pmf");
+		Path bankFile = Files.createTempFile("metrics", ".bank");
+		try {
+			new BinarySearchPMF(WEIGHTS);
+			new AliasPMF(WEIGHTS);
+			new FloatPMF(WEIGHTS, true);
+			new FixedPointPMF(WEIGHTS, false);
+			new DynamicPMF(WEIGHTS);
+			new OffHeapBinarySearchPMF(WEIGHTS.length, i -> WEIGHTS[(int) i]);
+			new OffHeapChanAsuaPMF(WEIGHTS.length, i -> WEIGHTS[(int) i]);
+			assertEquals(List.of("BinarySearchPMF", "AliasPMF", "FloatPMF", "FixedPointPMF",
+					"DynamicPMF", "OffHeapBinarySearchPMF", "OffHeapChanAsuaPMF"), built);
+
+			built.clear();
+			PMFFiles.write(new ChanAsuaPMF(WEIGHTS), file);
+			PMFFiles.map(file);
+			PMFFiles.write(new SpoofingPMF(1_000_000L, WEIGHTS), file);
+			PMFFiles.map(file);
+			assertEquals(List.of("ChanAsuaPMF", "MappedChanAsuaPMF", "SpoofingPMF",
+					"MappedSpoofingPMF"), built);
+
+			built.clear();
+			PMFBankBuilder builder = new PMFBankBuilder();
+			builder.add(WEIGHTS);
+			builder.add(new double[] {1, 2, 3});
+			PMFFiles.write(builder.build(), bankFile);
+			PMFFiles.mapBank(bankFile);
+			assertEquals(List.of("PMFBank", "MappedPMFBank"), built);
+		} finally {
+			PMFMetrics.setListener(null);
+			Files.delete(file);
+			Files.delete(bankFile);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+
+/**
+ * Weights and goodness of fit checks shared by the tests. Every check uses a fixed seed, so a
+ * test either always passes or always fails.
+ */
+final class Samples {
+
+	private Samples() {
+	}
+
+
+	/**
+	 * @param n - The number of weights
+	 * @param seed - Seeds the weights
+	 *
+	 * @return - Weights between about 1 and 20 (1 / (0.05 + U)) with every 17th weight set to 0
+	 */
+	static double[] weights(int n, long seed) {
+		Random rand = new Random(seed);
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			weights[i] = (i % 17 == 5) ? 0 : 1.0 / (0.05 + rand.nextDouble());
+		}
+		return weights;
+	}
+
+
+	/** @return - How many times each outcome between 0 and (n - 1) appears in samples. */
+	static long[] count(int[] samples, int n) {
+		long[] counts = new long[n];
+		for (int sample : samples) {
+			counts[sample]++;
+		}
+		return counts;
+	}
+
+
+	/**
+	 * Check that counts are a plausible multinomial draw from weights: the chi-square statistic
+	 * must be within 6 standard deviations of its mean, and outcomes of weight 0 must never be
+	 * drawn (unless allowZeros, lossy PMFs may give them a little mass).
+	 *
+	 * @param name - Names the PMF in the failure message
+	 * @param counts - The number of times each outcome was drawn
+	 * @param weights - The weights the PMF was built from
+	 * @param allowZeros - True if outcomes of weight 0 may be drawn
+	 */
+	static void assertFits(String name, long[] counts, double[] weights, boolean allowZeros) {
+
+		double sum = 0;
+		long draws = 0;
+		for (int i = 0; i < weights.length; i++) {
+			sum += weights[i];
+			draws += counts[i];
+		}
+
+		double chiSquare = 0;
+		int degrees = -1;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] == 0) {
+				assertTrue(allowZeros || counts[i] == 0,
+						name + " drew outcome " + i + " of weight 0, " + counts[i] + " times");
+				continue;
+			}
+			double expected = draws * weights[i] / sum;
+			chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+			degrees++;
+		}
+
+		double limit = degrees + 6 * Math.sqrt(2.0 * degrees);
+		assertTrue(chiSquare < limit, name + " chi-square " + chiSquare + " exceeds " + limit
+				+ " (" + degrees + " degrees of freedom)");
+	}
+}
@@ -0,0 +1,132 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+
+/** Refinement limits, edge case inputs and the streaming builder of SpoofingPMF. */
+public class SpoofingPMFTest {
+
+	@Test
+	public void refinementStopsAtTheErrorLimit() {
+		double[] weights = Samples.weights(2000, 31L);
+		for (long lifetime : new long[] {1_000L, 1_000_000L, 1_000_000_000L}) {
+			SpoofingLimits limits = SpoofingLimits.forLifetime(lifetime);
+			SpoofingPMF serial = new SpoofingPMF(limits, weights);
+			SpoofingPMF parallel = new SpoofingPMF(limits, weights, ForkJoinPool.commonPool());
+
+			assertTrue(serial.getLambda() <= limits.getErrorLimit() * (1 + 1e-9));
+			assertTrue(parallel.getLambda() <= limits.getErrorLimit() * (1 + 1e-9));
+		}
+	}
+
+
+	@Test
+	public void theBinCapIsRespected() {
+		double[] weights = Samples.weights(2000, 37L);
+		SpoofingLimits limits = SpoofingLimits.forLifetime(1_000_000_000L).withMaxBins(10);
+		assertEquals(10, new SpoofingPMF(limits, weights).getNumBins());
+		assertEquals(10, new SpoofingPMF(limits, weights, ForkJoinPool.commonPool()).getNumBins());
+	}
+
+
+	@Test
+	public void fewWeightsBuildForAnyLifetime() {
+		Random rand = new Random(41L);
+		for (int n = 1; n <= 12; n++) {
+			double[] weights = new double[n];
+			for (int i = 0; i < n; i++) {
+				weights[i] = rand.nextDouble();
+			}
+			for (long lifetime : new long[] {1L, 100L, 1_000L, 1_000_000L, Long.MAX_VALUE}) {
+				SpoofingPMF pmf = new SpoofingPMF(lifetime, weights);
+				new SpoofingPMF(lifetime, weights, ForkJoinPool.commonPool());
+				assertTrue(pmf.getNumBins() <= n);
+				for (double u = 0; u < 1; u += 0.001) {
+					int sample = pmf.getSample(u);
+					assertTrue(sample >= 0 && sample < n);
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void aZeroErrorLimitIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> SpoofingLimits.forErrorLimit(0));
+		assertThrows(IllegalArgumentException.class, () -> SpoofingLimits.forErrorLimit(-1));
+		assertThrows(IllegalArgumentException.class,
+				() -> SpoofingLimits.forErrorLimit(Double.NaN));
+	}
+
+
+	@Test
+	public void zeroWeightsDoNotStopRefinement() {
+		double[] weights = Samples.weights(1000, 43L);
+		double[] noZeros = weights.clone();
+		for (int i = 0; i < noZeros.length; i++) {
+			noZeros[i] = Math.max(noZeros[i], 1.0);
+		}
+
+		SpoofingLimits limits = SpoofingLimits.forLifetime(1_000_000L);
+		SpoofingPMF pmf = new SpoofingPMF(limits, weights);
+		assertTrue(pmf.getLambda() <= limits.getErrorLimit() * (1 + 1e-9), "" + pmf.getLambda());
+		assertTrue(pmf.getNumBins() > new SpoofingPMF(limits, noZeros).getNumBins() / 2);
+	}
+
+
+	@Test
+	public void theBuilderMatchesTheInMemoryBuild() throws IOException {
+		double[] weights = Samples.weights(10_000, 47L);
+		SpoofingLimits limits = SpoofingLimits.forLifetime(10_000_000L);
+		SpoofingPMF expected = new SpoofingPMF(limits, weights);
+
+		Path file = Files.createTempFile("weights", ".bin");
+		try {
+			ByteBuffer bytes = ByteBuffer.allocate(8 * weights.length)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			bytes.asDoubleBuffer().put(weights);
+			Files.write(file, bytes.array());
+
+			//presorted weights are only normalized, not sorted and merged
+			double[] presorted =
+					Arrays.stream(weights).map(w -> -w).sorted().map(w -> -w).toArray();
+			SpoofingPMF expectedPresorted = new SpoofingPMF(limits, presorted);
+
+			for (int chunkSize : new int[] {2, 999, 4096, weights.length, 1 << 20}) {
+				SpoofingPMFBuilder builder = new SpoofingPMFBuilder(limits).chunkSize(chunkSize);
+				assertSameDraws(expected, builder.build(Arrays.stream(weights)));
+				assertSameDraws(expected, builder.build(file));
+				assertSameDraws(expectedPresorted, builder.build(Arrays.stream(presorted)));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+
+	private static void assertSameDraws(SpoofingPMF expected, SpoofingPMF actual) {
+		assertEquals(expected.getNumBins(), actual.getNumBins());
+		assertEquals(expected.getLambda(), actual.getLambda());
+		assertEquals(expected.getMemoryBytes(), actual.getMemoryBytes());
+
+		SplittableRandom rng = new SplittableRandom(53L);
+		for (int i = 0; i < 50_000; i++) {
+			double u = rng.nextDouble();
+			assertEquals(expected.getSample(u), actual.getSample(u));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package probMass;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+
+
+/** ProbMassFunctions.forWorkload must pick from its estimates and report what it measured. */
+public class WorkloadPlanTest {
+
+	private static final double[] WEIGHTS = Samples.weights(100_000, 83L);
+
+
+	@Test
+	public void aTightBudgetChoosesSpoofingAndMeasuresItsProbes() {
+		WorkloadPlan plan = ProbMassFunctions.forWorkload(WEIGHTS, 1_000_000L, 400_000L, 5.0);
+
+		assertEquals("SpoofingPMF", plan.getChoice().getName());
+		assertEquals(5.0, plan.getChoice().getProbesPerDraw());
+		assertTrue(plan.getReason().contains("fits the memory budget and the probe target"));
+		double measured = plan.getProbesPerDraw();
+		assertTrue(measured >= 4.0 && measured < 5.0, "" + measured);
+		assertTrue(plan.getBytes() <= 400_000L);
+	}
+
+
+	@Test
+	public void aSpoofingPMFOverTheProbeTargetIsNotCalledAMatch() {
+		WorkloadPlan plan = ProbMassFunctions.forWorkload(WEIGHTS, 1_000_000L, 400_000L, 4.0);
+
+		//the bins make a walk of more than 0, so 4 probes can not be met
+		assertEquals("SpoofingPMF", plan.getChoice().getName());
+		assertTrue(plan.getProbesPerDraw() > 4.0, "" + plan.getProbesPerDraw());
+		assertTrue(plan.getReason().contains("No candidate that meets the probe target"),
+				plan.getReason());
+	}
+
+
+	@Test
+	public void aSmallSpoofingPMFStaysWithinTheBudget() {
+		double[] weights = Samples.weights(1000, 89L);
+		for (long budget = 2000; budget <= 4000; budget += 100) {
+			WorkloadPlan plan = ProbMassFunctions.forWorkload(weights, 100_000L, budget, 6.0);
+
+			//the index table is a short[] below 65,536 entries
+			assertEquals(2000, spoofingCandidate(plan).getBytes());
+			assertWithinBudget(plan, budget);
+		}
+	}
+
+
+	@Test
+	public void aSpoofingPMFWithAnIntTableStaysWithinTheBudget() {
+		int n = (1 << 24) + 1;
+		WorkloadPlan plan = ProbMassFunctions.forWorkload(
+				Samples.weights(n, 97L), 1_000_000L, 60_000_000L, 6.0);
+
+		//an int[] above 2^24 entries, packing 25 bits would have claimed 52 MB
+		assertEquals(4L * n, spoofingCandidate(plan).getBytes());
+		assertWithinBudget(plan, 60_000_000L);
+	}
+
+
+	@Test
+	public void theEntryTableSizeIsWhatItStores() throws IOException {
+		Path file = Files.createTempFile("entries", ".bin");
+		try {
+			int[] sizes = {1000, 1 << 16, (1 << 16) + 1, 300_001, 1 << 24, (1 << 24) + 1};
+			for (int n : sizes) {
+				try (PMFFiles.Output out = new PMFFiles.Output(FileChannel.open(file,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+					EntryTable.forSize(n).writeTo(out);
+				}
+				//tables are padded to 8 bytes in a file
+				long padding = Files.size(file) - EntryTable.bytesFor(n);
+				assertTrue(padding >= 0 && padding < 8, "n = " + n + " :: " + padding);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+
+	@Test
+	public void aLargeBudgetChoosesTheFastestExactPMF() {
+		WorkloadPlan plan = ProbMassFunctions.forWorkload(WEIGHTS, 1_000_000L, 1L << 30, 4.0);
+
+		assertEquals("AliasPMF", plan.getChoice().getName());
+		assertEquals(2.0, plan.getProbesPerDraw());
+		assertTrue(plan.getPMF() instanceof AliasPMF);
+	}
+
+
+	private static WorkloadPlan.Candidate spoofingCandidate(WorkloadPlan plan) {
+		return plan.getCandidates().stream()
+				.filter(c -> c.getName().equals("SpoofingPMF"))
+				.findFirst()
+				.get();
+	}
+
+
+	/** The built PMF must fit the budget unless the plan says nothing could. */
+	private static void assertWithinBudget(WorkloadPlan plan, long budget) {
+		if (!plan.getReason().contains("No candidate that fits the memory budget")) {
+			assertTrue(plan.getBytes() <= budget, budget + " :: " + plan);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package probMass;
+
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Vector API batch sampling kernels (see VectorSupport). Each step handles one uniform per lane
+ * (4 lanes with AVX2, 8 with AVX-512): table lookups are gathers, and the data dependent branches
+ * of the scalar loops become lane masks, so a mispredicted branch never stalls the loop. Leftover
+ * draws use the equivalent scalar code.
+ */
+final class VectorKernels implements VectorSupport.Kernels {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+	/** Ints with as many lanes as DOUBLES. */
+	private static final VectorSpecies<Integer> INTS =
+			VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+	private static final int LANES = DOUBLES.length();
+
+
+	private VectorKernels() {
+	}
+
+
+	/** @return - The kernels, or null when the preferred vector shape has fewer than 2 lanes. */
+	public static VectorSupport.Kernels create() {
+		return (LANES < 2) ? null : new VectorKernels();
+	}
+
+
+	/**
+	 * A branchless lower bound search: every lane takes the same ceil(log2(N)) steps, and a lane
+	 * only moves its base forward when the gathered CMF entry is below its draw.
+	 */
+	@Override
+	public void binarySearch(double[] cmf, double[] uniforms, int[] out, int outFrom, int count) {
+
+		int[] lanes = new int[LANES];
+
+		int i = 0;
+		for (; i <= count - LANES; i += LANES) {
+
+			DoubleVector u = DoubleVector.fromArray(DOUBLES, uniforms, i);
+			IntVector base = IntVector.zero(INTS);
+
+			//the answer is always between base and base + len
+			for (int len = cmf.length; len > 1; ) {
+				int half = len >>> 1;
+				base.add(half - 1).intoArray(lanes, 0);
+				VectorMask<Double> below = DoubleVector.fromArray(DOUBLES, cmf, 0, lanes, 0).lt(u);
+				base = base.add(half, below.cast(INTS));
+				len -= half;
+			}
+
+			base.intoArray(lanes, 0);
+			VectorMask<Double> below = DoubleVector.fromArray(DOUBLES, cmf, 0, lanes, 0).lt(u);
+			base.add(1, below.cast(INTS)).intoArray(out, outFrom + i);
+		}
+
+		for (; i < count; i++) {
+			out[outFrom + i] = Util.lowerBound(cmf, uniforms[i]);
+		}
+	}
+}
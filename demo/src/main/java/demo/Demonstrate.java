@@ -5,6 +5,7 @@ import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultiset;
 import java.util.Arrays;
 import java.util.Random;
+import probMass.AliasPMF;
 import probMass.BinarySearchPMF;
 import probMass.ChanAsuaPMF;
 import probMass.ProbMassFunction;
@@ -34,6 +35,7 @@ public class Demonstrate {
 		int NUM_DRAWS = 100000000;	//100 Mil
 		singleTest(NUM_DRAWS, new BinarySearchPMF(weights), showSamples);
 		singleTest(NUM_DRAWS, new ChanAsuaPMF(weights), showSamples);
+		singleTest(NUM_DRAWS, new AliasPMF(weights), showSamples);
 		singleTest(NUM_DRAWS, new SpoofingPMF((long) NUM_DRAWS, weights), showSamples);
 	}
 